@@ -0,0 +1,177 @@
+package io.github.jotran.reader.model;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.util.JrawUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the ingest rate of {@link SubmissionDbHelper#addSubmissions(List)} against the
+ * previous row by row insert path, as well as the cost of re-syncing an already stored page, of
+ * reading a single subreddit out of a large store, of searching titles and of storing the
+ * {@link SubmissionCodec} payload instead of the JSON text.
+ * <p>
+ * The parts of the model layer free of the Android SDK are measured on the JVM by the JMH
+ * benchmarks of the benchmark module.
+ * <p>
+ * Results are written to logcat under the {@code SubmissionDbBenchmark} tag.
+ */
+public class SubmissionDbHelperBenchmark extends AndroidTestCase {
+    private static final String TAG = "SubmissionDbBenchmark";
+    private static final int[] SIZES = {100, 1000, 10000};
+
+    private SubmissionDbHelper mDbHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDbHelper = new SubmissionDbHelper(new RenamingDelegatingContext(getContext(), "bench_"));
+        mDbHelper.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDbHelper.reset();
+        mDbHelper.close();
+        super.tearDown();
+    }
+
+    public void testRowByRowInsert() {
+        for (int size : SIZES) {
+            List<Submission> submissions = Fixtures.createSubmissions(size);
+            long start = System.nanoTime();
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            for (Submission submission : submissions) {
+                ContentValues values = new ContentValues();
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME, submission.getFullName());
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE, submission.getTitle());
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT, submission.getSubredditName());
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE, submission.getScore());
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC, submission.getCreated().getTime() / 1000);
+                values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD, SubmissionCodec.encode(submission));
+                db.insert(SubmissionsContract.SubmissionEntry.TABLE_NAME, null, values);
+            }
+            db.close();
+            report("row by row", size, System.nanoTime() - start);
+            mDbHelper.reset();
+        }
+    }
+
+    public void testBatchedInsert() {
+        for (int size : SIZES) {
+            List<Submission> submissions = Fixtures.createSubmissions(size);
+            long start = System.nanoTime();
+            mDbHelper.addSubmissions(submissions);
+            report("batched", size, System.nanoTime() - start);
+            start = System.nanoTime();
+            mDbHelper.addSubmissions(submissions);
+            report("batched re-sync", size, System.nanoTime() - start);
+            assertEquals(size, mDbHelper.getSubmissionCount());
+            mDbHelper.reset();
+        }
+    }
+
+    public void testSubredditQuery() {
+        int size = 10000;
+        String subreddit = Fixtures.subreddit(7);
+        mDbHelper.addSubmissions(Fixtures.createSubmissions(size));
+
+        long start = System.nanoTime();
+        int matched = 0;
+        String afterFullName = null;
+        List<SubmissionSummary> page;
+        do {
+            page = mDbHelper.getSubmissions(null, afterFullName, DataManager.PAGE_SIZE);
+            for (SubmissionSummary submission : page) {
+                if (subreddit.equals(submission.getSubreddit())) matched++;
+            }
+            if (!page.isEmpty()) afterFullName = page.get(page.size() - 1).getFullName();
+        } while (page.size() == DataManager.PAGE_SIZE);
+        Log.i(TAG, String.format("in memory subreddit filter over %d rows: %d ms", size,
+                (System.nanoTime() - start) / 1000000));
+
+        start = System.nanoTime();
+        page = mDbHelper.getSubmissions(subreddit, null, DataManager.PAGE_SIZE);
+        Log.i(TAG, String.format("first subreddit page over %d rows: %.2f ms", size,
+                (System.nanoTime() - start) / 1e6));
+        assertEquals(DataManager.PAGE_SIZE, page.size());
+
+        start = System.nanoTime();
+        int queried = 0;
+        afterFullName = null;
+        do {
+            page = mDbHelper.getSubmissions(subreddit, afterFullName, DataManager.PAGE_SIZE);
+            queried += page.size();
+            if (!page.isEmpty()) afterFullName = page.get(page.size() - 1).getFullName();
+        } while (page.size() == DataManager.PAGE_SIZE);
+        Log.i(TAG, String.format("SQL subreddit filter over %d rows: %d ms", size,
+                (System.nanoTime() - start) / 1000000));
+        assertEquals(matched, queried);
+    }
+
+    public void testTitleSearch() {
+        int size = 10000;
+        mDbHelper.addSubmissions(Fixtures.createSubmissions(size));
+
+        long start = System.nanoTime();
+        List<SubmissionSummary> results = mDbHelper.searchSubmissions(null, "title 4242",
+                DataManager.SEARCH_LIMIT);
+        Log.i(TAG, String.format("full-text title search over %d rows: %.2f ms", size,
+                (System.nanoTime() - start) / 1e6));
+        assertFalse(results.isEmpty());
+    }
+
+    public void testPayloadSizeAndDecode() {
+        int size = 1000;
+        List<Submission> submissions = Fixtures.createFullSubmissions(size);
+        mDbHelper.addSubmissions(submissions);
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.execSQL("CREATE TEMP TABLE json_bench (json TEXT)");
+        for (Submission submission : submissions) {
+            ContentValues values = new ContentValues();
+            values.put("json", submission.getDataNode().toString());
+            db.insert("json_bench", null, values);
+        }
+        long jsonBytes = DatabaseUtils.longForQuery(db,
+                "SELECT SUM(LENGTH(CAST(json AS BLOB))) FROM json_bench", null);
+        long payloadBytes = DatabaseUtils.longForQuery(db, "SELECT SUM(LENGTH(" +
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD + ")) FROM " +
+                SubmissionsContract.SubmissionEntry.TABLE_NAME, null);
+        Log.i(TAG, String.format("stored %d rows: json %d KB, payload %d KB (%.1fx smaller)",
+                size, jsonBytes / 1024, payloadBytes / 1024, jsonBytes / (double) payloadBytes));
+        assertTrue(payloadBytes < jsonBytes);
+
+        List<String> jsons = new ArrayList<>(size);
+        List<byte[]> payloads = new ArrayList<>(size);
+        for (Submission submission : submissions) {
+            jsons.add(submission.getDataNode().toString());
+            payloads.add(SubmissionCodec.encode(submission));
+        }
+        long start = System.nanoTime();
+        for (String json : jsons) new Submission(JrawUtils.fromString(json));
+        report("json decode", size, System.nanoTime() - start);
+        start = System.nanoTime();
+        for (byte[] payload : payloads) SubmissionCodec.decode(payload);
+        report("payload decode", size, System.nanoTime() - start);
+
+        mDbHelper.getSubmissionCache().clear();
+        start = System.nanoTime();
+        for (Submission submission : submissions) mDbHelper.getSubmission(submission.getFullName());
+        report("hydrate from store", size, System.nanoTime() - start);
+        db.execSQL("DROP TABLE json_bench");
+    }
+
+    private void report(String mode, int size, long elapsedNanos) {
+        double rowsPerSecond = size / (elapsedNanos / 1e9);
+        Log.i(TAG, String.format("%s: %d rows in %d ms (%.0f rows/sec)", mode, size,
+                elapsedNanos / 1000000, rowsPerSecond));
+    }
+}
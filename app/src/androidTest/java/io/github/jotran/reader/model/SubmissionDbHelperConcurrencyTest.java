@@ -0,0 +1,88 @@
+package io.github.jotran.reader.model;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stresses a single {@link SubmissionDbHelper} with readers running while pages are written,
+ * the way the list reads while a background sync writes.
+ */
+public class SubmissionDbHelperConcurrencyTest extends AndroidTestCase {
+    private static final int PAGES = 40;
+    private static final int READERS = 4;
+
+    private SubmissionDbHelper mDbHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDbHelper = new SubmissionDbHelper(new RenamingDelegatingContext(getContext(), "stress_"));
+        mDbHelper.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDbHelper.reset();
+        mDbHelper.close();
+        super.tearDown();
+    }
+
+    public void testConcurrentReadWrite() throws InterruptedException {
+        List<Submission> submissions =
+                Fixtures.createSubmissions(PAGES * DataManager.PAGE_SIZE);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(READERS + 1);
+
+        new Thread(() -> {
+            try {
+                for (int i = 0; i < PAGES; i++) {
+                    mDbHelper.addSubmissions(submissions.subList(i * DataManager.PAGE_SIZE,
+                            (i + 1) * DataManager.PAGE_SIZE));
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            } finally {
+                writing.set(false);
+                done.countDown();
+            }
+        }).start();
+
+        for (int i = 0; i < READERS; i++) {
+            new Thread(() -> {
+                try {
+                    long lastCount = 0;
+                    while (writing.get()) {
+                        long count = mDbHelper.getSubmissionCount();
+                        assertTrue("count went back from " + lastCount + " to " + count,
+                                count >= lastCount);
+                        assertEquals(0, count % DataManager.PAGE_SIZE);
+                        lastCount = count;
+                        mDbHelper.getSubmissions(null, null, DataManager.PAGE_SIZE);
+                        mDbHelper.getSubmissions(Fixtures.subreddit(1), null, DataManager.PAGE_SIZE);
+                        mDbHelper.getSubreddits();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(submissions.size(), mDbHelper.getSubmissionCount());
+        int counted = 0;
+        for (int count : mDbHelper.getSubredditCounts().values()) counted += count;
+        assertEquals(submissions.size(), counted);
+    }
+}
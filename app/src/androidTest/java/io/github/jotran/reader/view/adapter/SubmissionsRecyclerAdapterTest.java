@@ -0,0 +1,80 @@
+package io.github.jotran.reader.view.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.jotran.reader.model.Fixtures;
+import io.github.jotran.reader.model.SubmissionSummary;
+
+/**
+ * Checks that {@link SubmissionsRecyclerAdapter} announces every change as a single range
+ * instead of a full data set change.
+ */
+public class SubmissionsRecyclerAdapterTest extends AndroidTestCase {
+    private List<SubmissionSummary> mSubmissions;
+    private SubmissionsRecyclerAdapter mAdapter;
+    private List<String> mChanges;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mSubmissions = new ArrayList<>();
+        mAdapter = new SubmissionsRecyclerAdapter(mSubmissions);
+        mChanges = new ArrayList<>();
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mChanges.add("changed");
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mChanges.add("inserted " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mChanges.add("removed " + positionStart + " " + itemCount);
+            }
+        });
+    }
+
+    public void testPageIsOneRangeInsert() {
+        mAdapter.addSubmissions(summarize(0, 100));
+        mAdapter.addSubmissions(summarize(100, 25));
+
+        assertEquals(125, mAdapter.getItemCount());
+        assertEquals("[inserted 0 100, inserted 100 25]", mChanges.toString());
+    }
+
+    public void testNewSubmissionsAreInsertedInFront() {
+        mAdapter.addSubmissions(summarize(2, 3));
+        mAdapter.addNewSubmissions(summarize(0, 2));
+
+        assertEquals(Fixtures.fullName(0), mSubmissions.get(0).getFullName());
+        assertEquals(Fixtures.fullName(2), mSubmissions.get(2).getFullName());
+        assertEquals("[inserted 0 3, inserted 0 2]", mChanges.toString());
+    }
+
+    public void testClearIsOneRangeRemove() {
+        mAdapter.addSubmissions(summarize(0, 10));
+        mAdapter.clear();
+        mAdapter.clear();
+        mAdapter.addSubmissions(new ArrayList<>());
+
+        assertEquals(0, mAdapter.getItemCount());
+        assertEquals("[inserted 0 10, removed 0 10]", mChanges.toString());
+    }
+
+    private static List<SubmissionSummary> summarize(int start, int count) {
+        List<SubmissionSummary> summaries = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            summaries.add(new SubmissionSummary(Fixtures.fullName(i), "title " + i,
+                    Fixtures.subreddit(i), i, i, null));
+        }
+        return summaries;
+    }
+}
@@ -4,15 +4,54 @@ import android.content.Context;
 
 import net.dean.jraw.http.oauth.OAuthException;
 import net.dean.jraw.models.Submission;
+import net.dean.jraw.paginators.Paginator;
 
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import io.github.jotran.reader.R;
 import rx.Observable;
+import rx.observables.SyncOnSubscribe;
 
 public class DataManager {
+    /**
+     * The number of submissions read from the stored database at a time.
+     */
+    public static final int PAGE_SIZE = 25;
+    /**
+     * The maximum number of submissions a search results in.
+     */
+    public static final int SEARCH_LIMIT = 100;
+    /**
+     * The number of saved submissions requested from the client per page.
+     */
+    public static final int NETWORK_PAGE_LIMIT = Paginator.RECOMMENDED_MAX_LIMIT;
+    /**
+     * The default time in milliseconds stored submissions are considered fresh after they were
+     * last revalidated against the client.
+     */
+    public static final long DEFAULT_FRESHNESS_TTL_MS = 5 * 60 * 1000;
     private JrawReaderHelper mJrawHelper;
-    private SubmissionDbHelper mDbHelper;
+    private SubmissionStore mStore;
+    /**
+     * Retries the client's requests that fail transiently, so a flaky network does not lose a
+     * page or the login.
+     */
+    private RetryPolicy mRetryPolicy;
+    /**
+     * The fullname of the last stored submission handed out, used as the key for the next page.
+     */
+    private volatile String mLastFullName;
+    /**
+     * The next page request in flight, shared by every caller asking for the next page of the
+     * same subreddit until it terminates.
+     */
+    private Observable<List<SubmissionSummary>> mNextRequest;
+    private String mNextSubreddit;
+    private long mFreshnessTtl = DEFAULT_FRESHNESS_TTL_MS;
 
     /**
      * Constructor for a {@code DataManager}.
@@ -20,8 +59,14 @@ public class DataManager {
      * @param context the application context used to access the app's database
      */
     public DataManager(Context context) {
-        mJrawHelper = JrawReaderHelper.getInstance(context.getResources());
-        mDbHelper = new SubmissionDbHelper(context);
+        this(JrawReaderHelper.getInstance(context.getString(R.string.reddit_client_id)),
+                SubmissionDbHelper.getInstance(context), RetryPolicy.getInstance());
+    }
+
+    DataManager(JrawReaderHelper jrawHelper, SubmissionStore store, RetryPolicy retryPolicy) {
+        mJrawHelper = jrawHelper;
+        mStore = store;
+        mRetryPolicy = retryPolicy;
     }
 
     /**
@@ -55,7 +100,7 @@ public class DataManager {
      * Clears any data stored in the application's database.
      */
     public void clear() {
-        mDbHelper.reset();
+        mStore.reset();
     }
 
     /**
@@ -77,6 +122,8 @@ public class DataManager {
     /**
      * Gets the deferred observable used for authenticating using the given
      * refresh token.
+     * <p>
+     * Transient failures are retried under the {@link RetryPolicy}.
      *
      * @param refreshToken the refresh toke to authenticate with
      * @return the deferred observable used for authenticating the given
@@ -89,7 +136,7 @@ public class DataManager {
             } catch (OAuthException e) {
                 return Observable.error(e);
             }
-        });
+        }).compose(mRetryPolicy.retry());
     }
 
     /**
@@ -102,51 +149,324 @@ public class DataManager {
     }
 
     /**
-     * Gets the deferred observable used for downloading saved submissions.
+     * Sets the time stored submissions are considered fresh after they were last revalidated.
      *
-     * @return the deferred observable used for downloading saved submissions
+     * @param ttl the freshness time to live in milliseconds, 0 to revalidate on every download
      */
-    public Observable<List<Submission>> downloadSubmissions() {
-        return Observable.defer(() -> Observable.concat(downloadDbSubmissions(),
-                downloadNetworkSubmissions()).first(submissions -> !submissions.isEmpty()));
+    public void setFreshnessTtl(long ttl) {
+        mFreshnessTtl = ttl;
     }
 
     /**
-     * Gets the deferred observable used for downloading saved submissions from the stored database.
+     * Gets the deferred observable used for downloading the first page of saved submissions
+     * belonging to the given subreddit.
      * <p>
-     * The page of submissions are added to the database on next.
+     * The first page is read from the stored database and emitted right away, falling back to
+     * the client if nothing is stored. If the stored submissions are no longer fresh, they are
+     * then revalidated against the client: the submissions saved since are added to the
+     * database and emitted as a second list, which belongs in front of the first page. A failed
+     * revalidation leaves the stored submissions as they are.
      *
-     * @return the deferred observable used for downloading the first page of
-     * saved submissions
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
+     * @return the deferred observable used for downloading the first page of saved submissions,
+     * followed by the newly saved submissions if there are any
+     */
+    public Observable<List<SubmissionSummary>> downloadSubmissions(String subreddit) {
+        return Observable.defer(() -> {
+            if (mStore.getSubmissionCount() == 0) return downloadNetworkSubmissions(subreddit);
+            Observable<List<SubmissionSummary>> stored = downloadDbSubmissions(subreddit, null);
+            if (System.currentTimeMillis() - mStore.getLastRevalidated() < mFreshnessTtl)
+                return stored;
+            return stored.concatWith(Observable.defer(
+                    () -> Observable.just(downloadNewestSubmissions()))
+                    .map(SubmissionLists::summarize)
+                    .map(submissions -> SubmissionLists.filter(submissions, subreddit))
+                    .filter(submissions -> !submissions.isEmpty())
+                    .onErrorResumeNext(Observable.empty()));
+        });
+    }
+
+    /**
+     * Gets the observable used for downloading every saved submission from the stored database,
+     * one page at a time.
+     * <p>
+     * Pages are only read as they are requested, so subscribers that stop early never read the
+     * rest of the database.
+     *
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
+     * @return the observable emitting the pages of stored submissions in saved order
      */
-    private Observable<List<Submission>> downloadDbSubmissions() {
-        return Observable.defer(() -> Observable.just(mDbHelper.getSubmissions()));
+    public Observable<List<SubmissionSummary>> downloadStoredSubmissions(String subreddit) {
+        return Observable.create(SyncOnSubscribe.<String, List<SubmissionSummary>>createStateful(
+                () -> null,
+                (afterFullName, observer) -> {
+                    List<SubmissionSummary> submissions =
+                            mStore.getSubmissions(subreddit, afterFullName, PAGE_SIZE);
+                    if (submissions.isEmpty()) {
+                        observer.onCompleted();
+                        return null;
+                    }
+                    observer.onNext(submissions);
+                    if (submissions.size() < PAGE_SIZE) observer.onCompleted();
+                    return submissions.get(submissions.size() - 1).getFullName();
+                }));
+    }
+
+    /**
+     * Gets the deferred observable used for searching the stored submissions for the given query.
+     * <p>
+     * Every word of the query is matched as a prefix of a word in the title, subreddit, self text
+     * or author of the submissions, best matches first.
+     *
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
+     * @param query     the words to search for
+     * @return the deferred observable used for searching the stored submissions
+     */
+    public Observable<List<SubmissionSummary>> searchSubmissions(String subreddit, String query) {
+        return Observable.defer(() -> Observable.just(
+                mStore.searchSubmissions(subreddit, query, SEARCH_LIMIT)));
+    }
+
+    /**
+     * Gets the deferred observable used for downloading the stored submissions created within
+     * the given range, sorted by the given order.
+     *
+     * @param sort  the order to sort the submissions by
+     * @param from  the earliest creation date to include, use null to not bound the range
+     * @param to    the latest creation date to include, use null to not bound the range
+     * @param limit the maximum number of submissions to download
+     * @return the deferred observable used for downloading the sorted submissions
+     */
+    public Observable<List<SubmissionSummary>> downloadSortedSubmissions(SubmissionSort sort,
+                                                                         Date from, Date to,
+                                                                         int limit) {
+        return Observable.defer(() -> Observable.just(mStore.getSortedSubmissions(sort,
+                from == null ? Long.MIN_VALUE : from.getTime() / 1000,
+                to == null ? Long.MAX_VALUE : to.getTime() / 1000, limit)));
+    }
+
+    /**
+     * Gets the deferred observable used for downloading a page of saved submissions from the
+     * stored database.
+     *
+     * @param subreddit     the subreddit to filter the submissions by, use null to not filter
+     *                      submissions
+     * @param afterFullName the fullname of the last submission of the previous page, use null to
+     *                      download the first page
+     * @return the deferred observable used for downloading a page of stored submissions
+     */
+    private Observable<List<SubmissionSummary>> downloadDbSubmissions(String subreddit,
+                                                                      String afterFullName) {
+        return Observable.defer(() -> Observable.just(
+                mStore.getSubmissions(subreddit, afterFullName, PAGE_SIZE)))
+                .doOnNext(this::setLastSubmission);
+    }
+
+    /**
+     * Remembers the last submission of the given page as the key for the next stored page.
+     *
+     * @param submissions the page of submissions that was handed out
+     */
+    private void setLastSubmission(List<SubmissionSummary> submissions) {
+        if (!submissions.isEmpty())
+            mLastFullName = submissions.get(submissions.size() - 1).getFullName();
     }
 
     /**
      * Gets the deferred observable used for downloading the first page of
      * saved submissions from the client.
+     * <p>
+     * The whole page is added to the database, only the submissions belonging to the given
+     * subreddit are emitted.
      *
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
      * @return the deferred observable used for downloading the first page of
      * saved submissions
      */
-    private Observable<List<Submission>> downloadNetworkSubmissions() {
-        return Observable.defer(() -> Observable.just(mJrawHelper.download())
-                .doOnNext(submissions -> mDbHelper.addSubmissions(submissions)));
+    private Observable<List<SubmissionSummary>> downloadNetworkSubmissions(String subreddit) {
+        return Observable.defer(() -> Observable.just(downloadNetworkPage(null)))
+                .compose(mRetryPolicy.retry())
+                .doOnNext(submissions -> mStore.setLastRevalidated(System.currentTimeMillis()))
+                .map(SubmissionLists::summarize)
+                .doOnNext(this::setLastSubmission)
+                .map(submissions -> SubmissionLists.filter(submissions, subreddit));
+    }
+
+    /**
+     * Downloads the page of saved submissions that starts after the given fullname and adds it to
+     * the database along with the cursor of the next page.
+     * <p>
+     * The page limit is kept with the cursor, so paging continues with the same page size after
+     * a restart.
+     *
+     * @param after the fullname the page starts after, null to download the first page
+     * @return the downloaded submissions, empty if the client is not authenticated
+     */
+    private List<Submission> downloadNetworkPage(String after) {
+        if (!mJrawHelper.isAuthenticated()) return Collections.emptyList();
+        int limit = mStore.getPageLimit();
+        if (limit == 0) limit = NETWORK_PAGE_LIMIT;
+        SavedPage page = mJrawHelper.downloadPage(after, limit,
+                RequestScheduler.Priority.FOREGROUND);
+        mStore.addPagedSubmissions(page.getSubmissions(), page.getAfter(), limit);
+        return page.getSubmissions();
+    }
+
+    /**
+     * Gets the deferred observable used for syncing the stored database with the client's saved
+     * submissions.
+     * <p>
+     * Only the submissions saved since the last sync are downloaded and added in front of the
+     * stored submissions, leaving the rest of the database intact. If nothing is stored yet, the
+     * first page of saved submissions is downloaded instead.
+     *
+     * @return the deferred observable used for syncing saved submissions, emitting the newly
+     * added submissions
+     */
+    public Observable<List<SubmissionSummary>> syncSubmissions() {
+        return Observable.defer(() -> {
+            if (mStore.getSubmissionCount() == 0) return downloadNetworkSubmissions(null);
+            return Observable.defer(() -> Observable.just(downloadNewestSubmissions()))
+                    .compose(mRetryPolicy.retry())
+                    .map(SubmissionLists::summarize);
+        });
+    }
+
+    /**
+     * Downloads the submissions saved since the last sync and adds them in front of the stored
+     * submissions, marking the stored submissions as fresh.
+     *
+     * @return the newly saved submissions, in saved order
+     */
+    private List<Submission> downloadNewestSubmissions() {
+        List<Submission> submissions = mJrawHelper.downloadNewest(mStore::hasSubmission);
+        mStore.addNewestSubmissions(submissions);
+        mStore.setLastRevalidated(System.currentTimeMillis());
+        return submissions;
+    }
+
+    /**
+     * Gets the deferred observable used for walking the client's whole saved history into the
+     * stored database.
+     * <p>
+     * The walk continues from the cursor stored with the last committed page, so a walk that was
+     * stopped resumes where it left off and a completed walk does nothing. Pages are requested
+     * in the background, spaced to the rate limit and behind any page the user is waiting on.
+     * Unsubscribing stops the walk after the page in progress has been committed.
+     *
+     * @return the deferred observable used for walking the saved history, emitting the number of
+     * submissions stored so far by this walk after every committed page
+     */
+    public Observable<Integer> syncHistory() {
+        return HistorySync.walk(mJrawHelper, mStore, mRetryPolicy, NETWORK_PAGE_LIMIT);
+    }
+
+    /**
+     * Determines whether the walk of the saved history has reached the end of the listing.
+     *
+     * @return true if every saved submission has been stored
+     */
+    public boolean isHistorySynced() {
+        return mStore.isSyncComplete();
+    }
+
+    /**
+     * Gets the deferred observable used for downloading the next page of saved submissions
+     * belonging to the given subreddit.
+     * <p>
+     * The next page is read from the stored database, falling back to the client once every
+     * stored submission has been handed out. Pages from the client continue after the last
+     * stored submission and are added to the database on next. Once the saved history walk has
+     * stored the whole listing, the client is not asked for more.
+     * <p>
+     * Requests are coalesced: while a next page is being downloaded, every call for the same
+     * subreddit gets the same shared observable, so a page is never downloaded twice and never
+     * skipped. A new page is only downloaded once the request in flight has terminated.
+     *
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
+     * @return the deferred observable used for downloading the next page of
+     * saved submissions
+     */
+    public synchronized Observable<List<SubmissionSummary>> downloadNextSubmissions(
+            String subreddit) {
+        if (mNextRequest != null && isNextSubreddit(subreddit))
+            return mNextRequest;
+        mNextSubreddit = subreddit;
+        mNextRequest = Observable.defer(() -> {
+            if (mLastFullName == null) return downloadNextNetworkSubmissions(subreddit);
+            return Observable.concat(downloadDbSubmissions(subreddit, mLastFullName),
+                    downloadNextNetworkSubmissions(subreddit))
+                    .firstOrDefault(Collections.emptyList(), submissions -> !submissions.isEmpty());
+        })
+                .doOnTerminate(() -> finishNextRequest(subreddit))
+                .cache();
+        return mNextRequest;
+    }
+
+    /**
+     * Determines whether the given subreddit is the subreddit of the next page request.
+     *
+     * @param subreddit the subreddit to check, null if submissions are not filtered
+     * @return true if the next page request was made for the given subreddit
+     */
+    private boolean isNextSubreddit(String subreddit) {
+        return subreddit == null ? mNextSubreddit == null : subreddit.equals(mNextSubreddit);
+    }
+
+    /**
+     * Forgets the next page request of the given subreddit, so the next call downloads a new page.
+     *
+     * @param subreddit the subreddit of the request that terminated
+     */
+    private synchronized void finishNextRequest(String subreddit) {
+        if (isNextSubreddit(subreddit)) mNextRequest = null;
     }
 
     /**
      * Gets the deferred observable used for downloading the next page of
      * saved submissions from the client.
      * <p>
-     * The page of submissions are added to the database on next.
+     * The page starts after the last stored submission, so pages the saved history walk stored
+     * are not downloaded again, and nothing is downloaded once either listing has reached its
+     * end. The whole page is added to the database, only the submissions belonging to the given
+     * subreddit are emitted.
      *
+     * @param subreddit the subreddit to filter the submissions by, use null to not filter
+     *                  submissions
      * @return the deferred observable used for downloading the next page of
      * saved submissions
      */
-    public Observable<List<Submission>> downloadNextSubmissions() {
-        return Observable.defer(() -> Observable.just(mJrawHelper.downloadNext())
-                .doOnNext(submissions -> mDbHelper.addSubmissions(submissions)));
+    private Observable<List<SubmissionSummary>> downloadNextNetworkSubmissions(String subreddit) {
+        return Observable.defer(() -> {
+            if (mStore.isPagingComplete() || mStore.isSyncComplete())
+                return Observable.just(Collections.<Submission>emptyList());
+            return Observable.just(downloadNetworkPage(mStore.getPageAfter()));
+        })
+                .compose(mRetryPolicy.retry())
+                .map(SubmissionLists::summarize)
+                .doOnNext(this::setLastSubmission)
+                .map(submissions -> SubmissionLists.filter(submissions, subreddit));
+    }
+
+    /**
+     * Gets the deferred observable used for downloading the full stored submission with the
+     * given fullname.
+     *
+     * @param fullName the fullname of the submission to download
+     * @return the deferred observable used for downloading the full submission
+     */
+    public Observable<Submission> downloadSubmission(String fullName) {
+        return Observable.defer(() -> {
+            Submission submission = mStore.getSubmission(fullName);
+            if (submission == null)
+                return Observable.error(new Exception(fullName + " is not stored."));
+            return Observable.just(submission);
+        });
     }
 
     /**
@@ -156,6 +476,23 @@ public class DataManager {
      * @return the deferred observable used for downloading the set of subreddits
      */
     public Observable<Set<String>> downloadSubreddits() {
-        return Observable.defer(() -> Observable.just(mDbHelper.getSubreddits()));
+        return Observable.defer(() -> Observable.just(mStore.getSubreddits()));
+    }
+
+    /**
+     * Gets the observable watching the subreddits of the stored database's saved submissions,
+     * along with the number of stored submissions of each.
+     * <p>
+     * The first emission holds every subreddit. Afterwards only the changes made by committed
+     * writes are read from the database, and folded into a new full map for every emission.
+     *
+     * @return the observable emitting the stored submission count of every subreddit, in a case
+     * insensitive order
+     */
+    public Observable<Map<String, Integer>> watchSubreddits() {
+        return mStore.watchSubredditCounts()
+                .scan(Collections.<String, Integer>emptyMap(),
+                        SubmissionLists::foldSubredditCounts)
+                .skip(1);
     }
 }
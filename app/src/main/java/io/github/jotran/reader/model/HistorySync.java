@@ -0,0 +1,74 @@
+package io.github.jotran.reader.model;
+
+import rx.Observable;
+
+/**
+ * The walk of the client's whole saved history into a {@link SubmissionStore}, behind
+ * {@link DataManager#syncHistory()}.
+ * <p>
+ * It does not depend on the Android SDK, so the sync benchmark measures this exact walk.
+ */
+final class HistorySync {
+    private HistorySync() {
+    }
+
+    /**
+     * Gets the deferred observable used for walking the client's whole saved history into the
+     * given store.
+     * <p>
+     * The walk continues from the cursor stored with the last committed page, so a walk that was
+     * stopped resumes where it left off and a completed walk does nothing. Pages are requested
+     * in the background, and a page that fails transiently is retried from its own cursor.
+     * Unsubscribing stops the walk after the page in progress has been committed.
+     *
+     * @param jrawHelper  the client to download the pages with
+     * @param store       the store to add every page to along with the cursor of the walk
+     * @param retryPolicy the policy retrying the pages that fail transiently
+     * @param limit       the number of submissions to request per page
+     * @return the deferred observable used for walking the saved history, emitting the number of
+     * submissions stored so far by this walk after every committed page
+     */
+    static Observable<Integer> walk(JrawReaderHelper jrawHelper, SubmissionStore store,
+                                    RetryPolicy retryPolicy, int limit) {
+        return Observable.defer(() -> {
+            if (!jrawHelper.isAuthenticated() || store.isSyncComplete())
+                return Observable.empty();
+            return Observable.create(subscriber -> {
+                try {
+                    String after = store.getSyncAfter();
+                    int synced = 0;
+                    while (!subscriber.isUnsubscribed()) {
+                        SavedPage page = downloadPage(jrawHelper, retryPolicy, after, limit);
+                        store.addSyncedSubmissions(page.getSubmissions(), page.getAfter(), limit);
+                        synced += page.getSubmissions().size();
+                        after = page.getAfter();
+                        subscriber.onNext(synced);
+                        if (after == null) break;
+                    }
+                    subscriber.onCompleted();
+                } catch (Exception e) {
+                    subscriber.onError(e);
+                }
+            });
+        });
+    }
+
+    /**
+     * Downloads the page of the walk that starts after the given fullname, retrying transient
+     * failures so the walk goes on from the same page.
+     *
+     * @param jrawHelper  the client to download the page with
+     * @param retryPolicy the policy retrying the page if it fails transiently
+     * @param after       the fullname the page starts after, null to download the first page
+     * @param limit       the number of submissions to request
+     * @return the downloaded page
+     */
+    private static SavedPage downloadPage(JrawReaderHelper jrawHelper, RetryPolicy retryPolicy,
+                                          String after, int limit) {
+        return Observable.defer(() -> Observable.just(jrawHelper.downloadPage(after, limit,
+                RequestScheduler.Priority.BACKGROUND)))
+                .compose(retryPolicy.<SavedPage>retry())
+                .toBlocking()
+                .single();
+    }
+}
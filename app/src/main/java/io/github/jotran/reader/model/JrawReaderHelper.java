@@ -1,50 +1,73 @@
 package io.github.jotran.reader.model;
 
-import android.content.res.Resources;
-import android.support.annotation.NonNull;
-
 import net.dean.jraw.RedditClient;
 import net.dean.jraw.http.NetworkException;
+import net.dean.jraw.http.OkHttpAdapter;
 import net.dean.jraw.http.UserAgent;
 import net.dean.jraw.http.oauth.Credentials;
 import net.dean.jraw.http.oauth.OAuthData;
 import net.dean.jraw.http.oauth.OAuthException;
 import net.dean.jraw.http.oauth.OAuthHelper;
+import net.dean.jraw.models.Listing;
 import net.dean.jraw.models.LoggedInAccount;
 import net.dean.jraw.models.Submission;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import io.github.jotran.reader.R;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import rx.exceptions.Exceptions;
+import rx.functions.Func1;
 
+/**
+ * The app's reddit client, scheduling every request within reddit's rate limit.
+ * <p>
+ * It does not depend on the Android SDK, so the benchmarks drive the app's requests through it
+ * against a local server.
+ */
 public class JrawReaderHelper {
     private static JrawReaderHelper mInstance;
     public static final String REDIRECT_URL = "http://127.0.0.1";
     private Credentials mCredentials;
     private OAuthHelper mOAuthHelper;
     private RedditClient mRedditClient;
-    private UserHistoryPaginator mPaginator;
+    /**
+     * Schedules every request of the client within reddit's rate limit, fed by the headers of
+     * every response.
+     */
+    private RequestScheduler mScheduler;
 
     /**
      * Gets the current instance of the {@code JrawReaderHelper}, since {@code JrawReaderHelper} is
      * a singleton.
      *
+     * @param clientId the reddit client id of the app
      * @return the current instance of the {@code JrawReaderHelper}
      */
-    public static JrawReaderHelper getInstance(@NonNull Resources resources) {
+    public static JrawReaderHelper getInstance(String clientId) {
         if (mInstance == null)
-            mInstance = new JrawReaderHelper(resources);
+            mInstance = new JrawReaderHelper(new OkHttpClient.Builder(),
+                    UserAgent.of("mobile", "io.github.jotran.reader", "v0.1", "reader-app"),
+                    Credentials.installedApp(clientId, REDIRECT_URL));
         return mInstance;
     }
 
-    private JrawReaderHelper(@NonNull Resources resources) {
-        UserAgent myUserAgent = UserAgent.of("mobile", "io.github.jotran.reader",
-                "v0.1", "reader-app");
-        mRedditClient = new RedditClient(myUserAgent);
+    /**
+     * Constructor for a {@code JrawReaderHelper}.
+     *
+     * @param http        the builder of the HTTP client to send the requests with, the rate limit
+     *                    interceptor is added to it
+     * @param userAgent   the user agent of the client
+     * @param credentials the credentials of the app
+     */
+    JrawReaderHelper(OkHttpClient.Builder http, UserAgent userAgent, Credentials credentials) {
+        mScheduler = new RequestScheduler();
+        http.addInterceptor(new RateLimitInterceptor(mScheduler));
+        mRedditClient = new RedditClient(userAgent,
+                new OkHttpAdapter(http.build(), Protocol.HTTP_2));
         mOAuthHelper = mRedditClient.getOAuthHelper();
-        final String CLIENT_ID = resources.getString(R.string.reddit_client_id);
-        mCredentials = Credentials.installedApp(CLIENT_ID, REDIRECT_URL);
+        mCredentials = credentials;
     }
 
     /**
@@ -74,6 +97,7 @@ public class JrawReaderHelper {
      * @throws OAuthException if there was a problem authenticating
      */
     public String authenticateUrl(String url) throws OAuthException {
+        schedule(RequestScheduler.Priority.FOREGROUND);
         OAuthData oAuthData = mOAuthHelper.onUserChallenge(url, mCredentials);
         mRedditClient.authenticate(oAuthData);
         return oAuthData.getRefreshToken();
@@ -87,6 +111,7 @@ public class JrawReaderHelper {
      * @throws OAuthException if there was a problem authenticating
      */
     public boolean authenticateToken(String refreshToken) throws OAuthException {
+        schedule(RequestScheduler.Priority.FOREGROUND);
         mOAuthHelper.setRefreshToken(refreshToken);
         OAuthData oAuthData = mOAuthHelper.refreshToken(mCredentials);
         mRedditClient.authenticate(oAuthData);
@@ -100,49 +125,70 @@ public class JrawReaderHelper {
      * @throws NetworkException if there was a problem logging out
      */
     public boolean logout() throws NetworkException {
+        schedule(RequestScheduler.Priority.FOREGROUND);
         mOAuthHelper.revokeAccessToken(mCredentials);
         mOAuthHelper.revokeRefreshToken(mCredentials);
         return !mRedditClient.isAuthenticated();
     }
 
     /**
-     * Downloads the initial page of saved submissions.
+     * Downloads the saved submissions that are newer than the given stored submissions.
+     * <p>
+     * Pages of the saved listing are walked from the start until a submission that is already
+     * stored is met, so only the head of the listing that is missing locally is downloaded.
      *
-     * @return the list containing the saved submissions
+     * @param isStored the function used to determine whether a submission's fullname is already
+     *                 stored
+     * @return the list containing the newly saved submissions, in saved order
      */
-    public List<Submission> download() {
+    public List<Submission> downloadNewest(Func1<String, Boolean> isStored) {
         List<Submission> submissions = new ArrayList<>();
         if (mRedditClient.isAuthenticated()) {
+            schedule(RequestScheduler.Priority.FOREGROUND);
             LoggedInAccount account = mRedditClient.me();
             UserHistoryPaginator historyPaginator =
                     new UserHistoryPaginator(mRedditClient, "saved",
                             account.getFullName());
-            if (historyPaginator.hasNext()) {
-                for (Object submission : historyPaginator.next()) {
-                    if (((Submission) submission).getTitle() != null)
-                        submissions.add((Submission) submission);
+            while (historyPaginator.hasNext()) {
+                schedule(RequestScheduler.Priority.FOREGROUND);
+                for (Object object : historyPaginator.next()) {
+                    Submission submission = (Submission) object;
+                    if (isStored.call(submission.getFullName()))
+                        return submissions;
+                    if (submission.getTitle() != null)
+                        submissions.add(submission);
                 }
             }
-            mPaginator = historyPaginator;
         }
         return submissions;
     }
 
     /**
-     * Downloads the next page of saved submissions.
+     * Downloads the page of saved submissions that starts after the given fullname.
+     * <p>
+     * No paginator is kept between pages, the returned page carries the cursor of the next page
+     * so the caller can store it and continue paging even after a restart.
      *
-     * @return the list containing the next page of saved submissions
+     * @param after    the fullname the page starts after, null to download the first page
+     * @param limit    the maximum number of submissions to request
+     * @param priority the priority the request is scheduled with
+     * @return the page of saved submissions, an empty last page if the client is not
+     * authenticated
      */
-    public List<Submission> downloadNext() {
+    public SavedPage downloadPage(String after, int limit, RequestScheduler.Priority priority) {
         List<Submission> submissions = new ArrayList<>();
-        if (mRedditClient.isAuthenticated() && mPaginator != null) {
-            if (mPaginator.hasNext()) {
-                for (Object submission : mPaginator.next()) {
-                    submissions.add((Submission) submission);
-                }
-            }
+        if (!mRedditClient.isAuthenticated()) return new SavedPage(submissions, null);
+        UserHistoryPaginator historyPaginator = new UserHistoryPaginator(mRedditClient, "saved",
+                mRedditClient.getAuthenticatedUser(), after);
+        historyPaginator.setLimit(limit);
+        schedule(priority);
+        Listing listing = historyPaginator.next();
+        for (Object object : listing) {
+            Submission submission = (Submission) object;
+            if (submission.getTitle() != null)
+                submissions.add(submission);
         }
-        return submissions;
+        return new SavedPage(submissions, listing.getAfter());
     }
 
     /**
@@ -153,4 +199,18 @@ public class JrawReaderHelper {
     public String getUserName() {
         return mRedditClient.getAuthenticatedUser();
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits until a request of the given priority may be sent within the rate limit.
+     *
+     * @param priority the priority of the request
+     */
+    private void schedule(RequestScheduler.Priority priority) {
+        try {
+            mScheduler.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.jotran.reader.model;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Reports the rate limit headers of every response reddit sends to a {@link RequestScheduler}.
+ * <p>
+ * A 429 without headers is reported as a spent budget for a minute.
+ */
+public class RateLimitInterceptor implements Interceptor {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long DEFAULT_RESET_SECONDS = 60;
+    private final RequestScheduler mScheduler;
+
+    /**
+     * Constructor for a {@code RateLimitInterceptor}.
+     *
+     * @param scheduler the scheduler to report the rate limit to
+     */
+    public RateLimitInterceptor(RequestScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        String remaining = response.header("X-Ratelimit-Remaining");
+        String reset = response.header("X-Ratelimit-Reset");
+        try {
+            if (remaining != null && reset != null) {
+                mScheduler.onRateLimit(Double.parseDouble(remaining), Long.parseLong(reset));
+            } else if (response.code() == TOO_MANY_REQUESTS) {
+                mScheduler.onRateLimit(0, reset != null ? Long.parseLong(reset)
+                        : DEFAULT_RESET_SECONDS);
+            }
+        } catch (NumberFormatException e) {
+            // Malformed headers leave the budget as it was
+        }
+        return response;
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.jotran.reader.model;
+
+import java.util.PriorityQueue;
+
+/**
+ * Schedules the client's requests to reddit within reddit's rate limit.
+ * <p>
+ * The budget of the current rate limit window is taken from the headers of every response.
+ * Background requests are spaced evenly over what is left of the window, keeping a reserve of
+ * the budget for foreground requests, so a bulk sync runs at the highest rate the window
+ * sustains without ever running into a 429. Foreground requests are never spaced, they only
+ * wait once the budget is spent.
+ * <p>
+ * Waiting requests are started one at a time, foreground requests first, each priority in the
+ * order the requests arrived.
+ */
+public class RequestScheduler {
+    /**
+     * The priority of a request.
+     */
+    public enum Priority {
+        /**
+         * A request the user is waiting on, such as loading the next page of the list.
+         */
+        FOREGROUND,
+        /**
+         * A request of a background sync.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * The time between two background requests before the first rate limit headers are
+     * received, reddit's limit of 60 requests per minute.
+     */
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    /**
+     * The number of requests of a window background requests leave to foreground requests.
+     */
+    public static final int FOREGROUND_RESERVE = 10;
+
+    private final PriorityQueue<Ticket> mWaiting = new PriorityQueue<>();
+    private long mSequence;
+    private long mLastStart;
+    /**
+     * The number of requests left in the current window, -1 while unknown.
+     */
+    private double mRemaining = -1;
+    /**
+     * The time the current window resets at, in milliseconds.
+     */
+    private long mResetAt;
+
+    private static class Ticket implements Comparable<Ticket> {
+        final Priority priority;
+        final long sequence;
+
+        Ticket(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int order = priority.compareTo(other.priority);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Waits until a request of the given priority may be sent, then counts it against the
+     * budget of the current window.
+     *
+     * @param priority the priority of the request
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public synchronized void acquire(Priority priority) throws InterruptedException {
+        Ticket ticket = new Ticket(priority, mSequence++);
+        mWaiting.add(ticket);
+        notifyAll();
+        try {
+            while (true) {
+                if (mWaiting.peek() != ticket) {
+                    wait();
+                    continue;
+                }
+                long delay = getDelay(priority);
+                if (delay <= 0) break;
+                wait(delay);
+            }
+            mLastStart = System.currentTimeMillis();
+            if (mRemaining > 0) mRemaining--;
+        } finally {
+            mWaiting.remove(ticket);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Updates the budget of the current window from the rate limit headers of a response.
+     *
+     * @param remaining the number of requests left in the window
+     * @param reset     the number of seconds until the window resets
+     */
+    public synchronized void onRateLimit(double remaining, long reset) {
+        mRemaining = remaining;
+        mResetAt = System.currentTimeMillis() + reset * 1000;
+        notifyAll();
+    }
+
+    /**
+     * Gets the time a request of the given priority has to wait before it may be sent.
+     *
+     * @param priority the priority of the request
+     * @return the time to wait, in milliseconds, 0 or less if the request may be sent now
+     */
+    synchronized long getDelay(Priority priority) {
+        long now = System.currentTimeMillis();
+        if (mRemaining >= 0 && now >= mResetAt) mRemaining = -1;
+        if (mRemaining >= 0 && mRemaining < 1) return mResetAt - now;
+        if (priority == Priority.FOREGROUND) return 0;
+        long interval = DEFAULT_INTERVAL_MS;
+        if (mRemaining >= 0) {
+            if (mRemaining <= FOREGROUND_RESERVE) return mResetAt - now;
+            interval = (long) ((mResetAt - now) / (mRemaining - FOREGROUND_RESERVE));
+        }
+        return mLastStart + interval - now;
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.http.NetworkException;
+
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+
+/**
+ * Retries the client's requests that fail transiently, with exponential backoff and jitter.
+ * <p>
+ * Only timeouts, dropped connections, 5xx and 429 responses are retried, anything else fails
+ * right away. The n-th retry waits a random time between 0 and
+ * {@code min(maxDelay, baseDelay * 2^(n-1))}, so clients failing together do not retry together.
+ * <p>
+ * Retries are drawn from a budget shared by every request: each retry costs a token and each
+ * successful request earns back a fraction of one, so an outage is not multiplied by the number
+ * of retries while isolated failures are always retried. The app's requests all go through
+ * {@link #getInstance()}, so the budget holds across every {@link DataManager} of the process.
+ */
+public class RetryPolicy {
+    /**
+     * The default number of times a request is tried before its error is passed on.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    /**
+     * The default delay before the first retry is jittered, in milliseconds.
+     */
+    public static final long DEFAULT_BASE_DELAY_MS = 500;
+    /**
+     * The default longest delay between two attempts, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_DELAY_MS = 8000;
+    /**
+     * The default number of retries the budget holds.
+     */
+    public static final int DEFAULT_BUDGET = 10;
+    /**
+     * The default share of a retry earned back by every successful request.
+     */
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static RetryPolicy mInstance;
+
+    private final int mMaxAttempts;
+    private final long mBaseDelay;
+    private final long mMaxDelay;
+    private final int mBudget;
+    private final double mBudgetRatio;
+    private final Random mRandom = new Random();
+    private double mTokens;
+
+    /**
+     * Gets the current instance of the {@code RetryPolicy} with the default attempts, delays and
+     * budget, shared by the client's requests of the whole process.
+     *
+     * @return the current instance of the {@code RetryPolicy}
+     */
+    public static synchronized RetryPolicy getInstance() {
+        if (mInstance == null)
+            mInstance = new RetryPolicy();
+        return mInstance;
+    }
+
+    /**
+     * Constructor for a {@code RetryPolicy} with the default attempts, delays and budget.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, DEFAULT_BUDGET,
+                DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * Constructor for a {@code RetryPolicy}.
+     *
+     * @param maxAttempts the number of times a request is tried before its error is passed on
+     * @param baseDelay   the delay before the first retry is jittered, in milliseconds
+     * @param maxDelay    the longest delay between two attempts, in milliseconds
+     * @param budget      the number of retries the budget holds, it starts full
+     * @param budgetRatio the share of a retry earned back by every successful request
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, int budget,
+                       double budgetRatio) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelay = baseDelay;
+        mMaxDelay = maxDelay;
+        mBudget = budget;
+        mBudgetRatio = budgetRatio;
+        mTokens = budget;
+    }
+
+    /**
+     * Gets the transformer retrying an observable request under this policy.
+     * <p>
+     * The source must be deferred, every retry subscribes to it again. Every item it emits counts
+     * as a successful request towards the budget.
+     *
+     * @param <T> the type of the items emitted by the request
+     * @return the transformer applying this policy
+     */
+    public <T> Observable.Transformer<T, T> retry() {
+        return source -> source
+                .doOnNext(item -> onSuccess())
+                .retryWhen(this::retryWhen);
+    }
+
+    /**
+     * Gets the retry notifications of a single subscription, given the errors of its attempts.
+     *
+     * @param errors the errors of the attempts
+     * @return the observable emitting after the backoff of every retried error
+     */
+    private Observable<?> retryWhen(Observable<? extends Throwable> errors) {
+        int[] attempts = {1};
+        return errors.flatMap(error -> {
+            if (attempts[0] >= mMaxAttempts || !isRetryable(error) || !tryAcquire())
+                return Observable.error(error);
+            long delay = getDelay(attempts[0]++);
+            return delay > 0 ? Observable.timer(delay, TimeUnit.MILLISECONDS) : Observable.just(0L);
+        });
+    }
+
+    /**
+     * Gets the jittered delay before the given retry.
+     *
+     * @param retry the number of the retry, starting at 1
+     * @return the delay before the retry, in milliseconds
+     */
+    long getDelay(int retry) {
+        long ceiling = mBaseDelay << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > mMaxDelay) ceiling = mMaxDelay;
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * (ceiling + 1));
+        }
+    }
+
+    /**
+     * Takes a retry from the budget.
+     *
+     * @return true if the budget held a retry
+     */
+    synchronized boolean tryAcquire() {
+        if (mTokens < 1) return false;
+        mTokens--;
+        return true;
+    }
+
+    /**
+     * Earns back a share of a retry for a successful request.
+     */
+    synchronized void onSuccess() {
+        mTokens = Math.min(mBudget, mTokens + mBudgetRatio);
+    }
+
+    /**
+     * Determines whether the given error is transient, looking through its causes.
+     *
+     * @param error the error of a request
+     * @return true if the request may succeed when retried
+     */
+    static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NetworkException
+                    && ((NetworkException) cause).getResponse() != null)
+                return isRetryableStatus(
+                        ((NetworkException) cause).getResponse().getStatusCode());
+            // Timeouts, including SocketTimeoutException, and dropped or refused connections
+            if (cause instanceof InterruptedIOException || cause instanceof SocketException
+                    || cause instanceof UnknownHostException)
+                return true;
+            if (cause.getCause() == cause) break;
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether a response with the given status may succeed when retried.
+     *
+     * @param status the HTTP status of the response
+     * @return true for 5xx and 429 statuses
+     */
+    static boolean isRetryableStatus(int status) {
+        return status >= 500 || status == TOO_MANY_REQUESTS;
+    }
+}
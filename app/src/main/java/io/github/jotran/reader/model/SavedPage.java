@@ -0,0 +1,36 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.List;
+
+/**
+ * A page of the client's saved submissions along with the cursor of the next page.
+ */
+public final class SavedPage {
+    private final List<Submission> mSubmissions;
+    private final String mAfter;
+
+    public SavedPage(List<Submission> submissions, String after) {
+        mSubmissions = submissions;
+        mAfter = after;
+    }
+
+    /**
+     * Gets the saved submissions of the page.
+     *
+     * @return the saved submissions, in saved order
+     */
+    public List<Submission> getSubmissions() {
+        return mSubmissions;
+    }
+
+    /**
+     * Gets the fullname the next page starts after.
+     *
+     * @return the fullname the next page starts after, null if this is the last page
+     */
+    public String getAfter() {
+        return mAfter;
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of hydrated {@code Submission}s, keyed by fullname.
+ * <p>
+ * Entries are weighed by the estimated size of the decoded {@code Submission}, derived from the
+ * size of the payload it was decoded from, and the least recently used entries are evicted once
+ * the total size exceeds the cache's maximum size.
+ * <p>
+ * Every invalidation starts a new generation. An entry read from the database is only cached if
+ * no invalidation happened since the read started, so a read racing a write can never cache the
+ * overwritten version of a submission.
+ */
+public class SubmissionCache {
+    /**
+     * The estimated size of a decoded {@code Submission} relative to the payload it was decoded
+     * from. The payload is almost all text, stored as UTF-8 at one byte per character for the
+     * mostly ASCII text of reddit, while the decoded {@code JsonNode} tree holds the same text in
+     * Java strings at two bytes per character. Object headers are not counted, so the estimate
+     * is a lower bound of the memory an entry holds.
+     */
+    static final int DECODED_SIZE_FACTOR = 2;
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long mMaxSize;
+    private long mSize;
+    private long mGeneration;
+    private long mHitCount;
+    private long mMissCount;
+
+    private static class Entry {
+        final Submission submission;
+        final int size;
+
+        Entry(Submission submission, int size) {
+            this.submission = submission;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Constructor for a {@code SubmissionCache}.
+     *
+     * @param maxSize the maximum total size of the cached entries, in bytes
+     */
+    public SubmissionCache(long maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Gets the cached {@code Submission} with the given fullname, marking it as recently used.
+     *
+     * @param fullName the fullname of the {@code Submission}
+     * @return the cached {@code Submission}, or null if it is not cached
+     */
+    public synchronized Submission get(String fullName) {
+        Entry entry = mEntries.get(fullName);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.submission;
+    }
+
+    /**
+     * Gets the current generation, to be passed to {@link #put} once a read finishes.
+     *
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches the given {@code Submission} read from the database, unless the cache was
+     * invalidated since the read started.
+     *
+     * @param fullName      the fullname of the {@code Submission}
+     * @param submission    the {@code Submission} to cache
+     * @param payloadLength the length of the stored payload the {@code Submission} was decoded
+     *                      from
+     * @param generation    the generation the read started in
+     */
+    public synchronized void put(String fullName, Submission submission, int payloadLength,
+                                 long generation) {
+        if (generation != mGeneration) return;
+        int size = payloadLength * DECODED_SIZE_FACTOR;
+        if (size > mMaxSize) return;
+        Entry previous = mEntries.put(fullName, new Entry(submission, size));
+        if (previous != null) mSize -= previous.size;
+        mSize += size;
+        trimToSize();
+    }
+
+    /**
+     * Removes the given written {@code Submission}s from the cache.
+     *
+     * @param submissions the {@code Submission}s that were written
+     */
+    public synchronized void invalidate(List<Submission> submissions) {
+        mGeneration++;
+        for (Submission submission : submissions) {
+            Entry entry = mEntries.remove(submission.getFullName());
+            if (entry != null) mSize -= entry.size;
+        }
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public synchronized void clear() {
+        mGeneration++;
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            mSize -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gets the number of lookups that found a cached {@code Submission}.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Gets the number of lookups that did not find a cached {@code Submission}.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Gets the total size of the cached entries.
+     *
+     * @return the total size of the cached entries, in bytes
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+}
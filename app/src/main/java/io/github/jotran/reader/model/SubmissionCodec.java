@@ -0,0 +1,196 @@
+package io.github.jotran.reader.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.util.JrawUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Compact binary encoding of the stored {@code Submission}s.
+ * <p>
+ * Only the fields of {@link #FIELDS} are kept, the media, preview and HTML blobs of the reddit
+ * JSON are dropped. A payload starts with a version byte followed by one tagged value per field,
+ * in the order of the fields. Integers are stored as zigzag varints and strings as length
+ * prefixed UTF-8, so decoding never tokenizes JSON text.
+ * <p>
+ * The fields of a version are fixed, adding or reordering fields requires a new version while
+ * payloads of older versions stay decodable.
+ */
+public final class SubmissionCodec {
+    /**
+     * The version written in front of every encoded payload.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * The fields of the reddit JSON kept by version 1, in payload order.
+     */
+    static final String[] FIELDS = {"id", "name", "title", "author", "subreddit", "subreddit_id",
+            "score", "ups", "downs", "likes", "created", "created_utc", "permalink", "url",
+            "domain", "selftext", "is_self", "over_18", "num_comments", "thumbnail",
+            "link_flair_text", "author_flair_text", "saved", "stickied", "edited", "gilded",
+            "hidden", "visited", "distinguished", "locked", "archived"};
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int TAG_ABSENT = 0;
+    private static final int TAG_NULL = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_TRUE = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_DOUBLE = 5;
+    private static final int TAG_STRING = 6;
+    /**
+     * A nested value of a kept field, stored as JSON text.
+     */
+    private static final int TAG_JSON = 7;
+
+    private SubmissionCodec() {
+    }
+
+    /**
+     * Encodes the kept fields of the given {@code Submission}.
+     *
+     * @param submission the {@code Submission} to encode
+     * @return the encoded payload
+     */
+    public static byte[] encode(Submission submission) {
+        return encode(submission.getDataNode());
+    }
+
+    /**
+     * Encodes the kept fields of the given reddit JSON data node.
+     *
+     * @param data the data node of a submission
+     * @return the encoded payload
+     */
+    public static byte[] encode(JsonNode data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(VERSION);
+        for (String field : FIELDS) {
+            JsonNode value = data.get(field);
+            if (value == null) {
+                out.write(TAG_ABSENT);
+            } else if (value.isNull()) {
+                out.write(TAG_NULL);
+            } else if (value.isBoolean()) {
+                out.write(value.booleanValue() ? TAG_TRUE : TAG_FALSE);
+            } else if (value.isIntegralNumber() && value.canConvertToLong()) {
+                out.write(TAG_LONG);
+                long n = value.longValue();
+                writeVarint(out, (n << 1) ^ (n >> 63));
+            } else if (value.isNumber()) {
+                out.write(TAG_DOUBLE);
+                long bits = Double.doubleToLongBits(value.doubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (bits >>> shift));
+            } else if (value.isTextual()) {
+                out.write(TAG_STRING);
+                writeString(out, value.textValue());
+            } else {
+                out.write(TAG_JSON);
+                writeString(out, value.toString());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the given payload back into a {@code Submission}.
+     *
+     * @param payload the payload written by {@link #encode}
+     * @return the decoded {@code Submission}
+     * @throws IllegalArgumentException if the payload is of an unknown version or is truncated
+     */
+    public static Submission decode(byte[] payload) {
+        return new Submission(decodeData(payload));
+    }
+
+    /**
+     * Decodes the given payload back into the reddit JSON data node holding the kept fields.
+     *
+     * @param payload the payload written by {@link #encode}
+     * @return the decoded data node
+     * @throws IllegalArgumentException if the payload is of an unknown version or is truncated
+     */
+    public static ObjectNode decodeData(byte[] payload) {
+        if (payload.length == 0 || payload[0] != VERSION)
+            throw new IllegalArgumentException("Unknown submission payload version.");
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        int[] pos = {1};
+        try {
+            for (String field : FIELDS) {
+                int tag = payload[pos[0]++];
+                switch (tag) {
+                    case TAG_ABSENT:
+                        break;
+                    case TAG_NULL:
+                        data.putNull(field);
+                        break;
+                    case TAG_FALSE:
+                    case TAG_TRUE:
+                        data.put(field, tag == TAG_TRUE);
+                        break;
+                    case TAG_LONG:
+                        long n = readVarint(payload, pos);
+                        n = (n >>> 1) ^ -(n & 1);
+                        // Match the node types Jackson parses the JSON into
+                        if (n == (int) n) data.put(field, (int) n);
+                        else data.put(field, n);
+                        break;
+                    case TAG_DOUBLE:
+                        long bits = 0;
+                        for (int i = 0; i < 8; i++)
+                            bits = (bits << 8) | (payload[pos[0]++] & 0xff);
+                        data.put(field, Double.longBitsToDouble(bits));
+                        break;
+                    case TAG_STRING:
+                        data.put(field, readString(payload, pos));
+                        break;
+                    case TAG_JSON:
+                        data.set(field, JrawUtils.fromString(readString(payload, pos)));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown submission payload tag.");
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated submission payload.", e);
+        }
+        return data;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] payload, int[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = payload[pos[0]++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(byte[] payload, int[] pos) {
+        int length = (int) readVarint(payload, pos);
+        if (length > payload.length - pos[0])
+            throw new IllegalArgumentException("Truncated submission payload.");
+        String value = new String(payload, pos[0], length, UTF_8);
+        pos[0] += length;
+        return value;
+    }
+}
@@ -1,135 +1,873 @@
 package io.github.jotran.reader.model;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
 
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.util.JrawUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
-public class SubmissionDbHelper extends SQLiteOpenHelper {
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+public class SubmissionDbHelper extends SQLiteOpenHelper implements SubmissionStore {
     private static final String DB_NAME = "Submissions.db";
-    private static final int DB_VERSION = 1;
-
-    private static final String TEXT_TYPE = " TEXT";
-    private static final String COMMA_SEP = ",";
-    private static final String SQL_CREATE_TASKS_ENTRIES =
-            "CREATE TABLE " + SubmissionsContract.SubmissionEntry.TABLE_NAME + " (" +
-                    SubmissionsContract.SubmissionEntry._ID + " INTEGER PRIMARY KEY," +
-                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
-                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + TEXT_TYPE + COMMA_SEP +
-                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + TEXT_TYPE + COMMA_SEP +
-                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_DATE_SUBMITTED + TEXT_TYPE + COMMA_SEP +
-                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_JSON + TEXT_TYPE + ");";
-    private static final String SQL_DELETE_TASKS_ENTRIES = "DROP TABLE IF EXISTS " +
-            SubmissionsContract.SubmissionEntry.TABLE_NAME;
+    private static final int DB_VERSION = 11;
+
+    /**
+     * The number of rows copied at a time when rebuilding the submissions table.
+     */
+    private static final int REBUILD_BATCH_SIZE = 100;
+    /**
+     * The maximum estimated size of the cache of hydrated submissions, in bytes.
+     */
+    private static final long CACHE_MAX_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * The subreddit count triggers as created by version 10 of the database.
+     */
+    private static final String[] SQL_CREATE_SUBREDDIT_TRIGGERS_V10 = {
+            "CREATE TRIGGER submissions_subreddit_insert AFTER INSERT ON submissions " +
+                    "BEGIN INSERT OR IGNORE INTO subreddits (subreddit,submission_count) " +
+                    "SELECT NEW.subreddit, 0 WHERE NEW.subreddit IS NOT NULL; UPDATE subreddits " +
+                    "SET submission_count = submission_count + 1 WHERE subreddit = NEW.subreddit; " +
+                    "END;",
+            "CREATE TRIGGER submissions_subreddit_delete AFTER DELETE ON submissions " +
+                    "BEGIN UPDATE subreddits SET submission_count = submission_count - 1 " +
+                    "WHERE subreddit = OLD.subreddit; DELETE FROM subreddits " +
+                    "WHERE subreddit = OLD.subreddit AND submission_count <= 0; END;",
+            "CREATE TRIGGER submissions_subreddit_update AFTER UPDATE OF subreddit " +
+                    "ON submissions WHEN OLD.subreddit IS NOT NEW.subreddit " +
+                    "BEGIN UPDATE subreddits SET submission_count = submission_count - 1 " +
+                    "WHERE subreddit = OLD.subreddit; DELETE FROM subreddits " +
+                    "WHERE subreddit = OLD.subreddit AND submission_count <= 0; " +
+                    "INSERT OR IGNORE INTO subreddits (subreddit,submission_count) " +
+                    "SELECT NEW.subreddit, 0 WHERE NEW.subreddit IS NOT NULL; UPDATE subreddits " +
+                    "SET submission_count = submission_count + 1 WHERE subreddit = NEW.subreddit; " +
+                    "END;"};
 
+    private static SubmissionDbHelper mInstance;
+    private final SubmissionCache mCache = new SubmissionCache(CACHE_MAX_SIZE);
+    /**
+     * Publishes the new counts of the subreddits changed by a write, a count of 0 meaning the
+     * subreddit is gone.
+     */
+    private final Subject<Map<String, Integer>, Map<String, Integer>> mSubredditChanges =
+            PublishSubject.<Map<String, Integer>>create().toSerialized();
+    /**
+     * Orders publishing subreddit changes against taking the snapshot of a new watcher.
+     */
+    private final Object mSubredditLock = new Object();
+    /**
+     * Set by an upgrade that rewrote the stored submissions, so the freed space is reclaimed.
+     */
+    private boolean mVacuumOnOpen;
+    /**
+     * The time the stored submissions were last revalidated against the client, shared by the
+     * whole process through the singleton.
+     */
+    private volatile long mLastRevalidated;
+
+    /**
+     * Gets the app wide instance of the {@code SubmissionDbHelper}.
+     * <p>
+     * The instance keeps its database connection open for the lifetime of the app, so reads and
+     * writes never pay for reopening the database file and a read can never race a close.
+     *
+     * @param context any context of the app, only its application context is kept
+     * @return the app wide instance of the {@code SubmissionDbHelper}
+     */
+    public static synchronized SubmissionDbHelper getInstance(@NonNull Context context) {
+        if (mInstance == null)
+            mInstance = new SubmissionDbHelper(context.getApplicationContext());
+        return mInstance;
+    }
+
+    /**
+     * Constructor for a {@code SubmissionDbHelper} with write-ahead logging enabled, so reads
+     * proceed concurrently with a write in progress.
+     *
+     * @param context the context used to open the database
+     */
     public SubmissionDbHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(SQL_CREATE_TASKS_ENTRIES);
+        for (String statement : SubmissionsSchema.SQL_CREATE_ENTRIES) db.execSQL(statement);
     }
 
+    /**
+     * Upgrades the stored submissions one version at a time, keeping them intact.
+     * <p>
+     * Versions before 4 lack columns that can only be recovered from the stored JSON, so those
+     * are rebuilt straight into the current schema.
+     */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL(SQL_DELETE_TASKS_ENTRIES);
-        db.execSQL(SQL_CREATE_TASKS_ENTRIES);
+        if (oldVersion < 4) {
+            rebuildFromJson(db, oldVersion >= 3);
+            return;
+        }
+        if (oldVersion < 5) upgradeToVersion5(db);
+        if (oldVersion < 6) upgradeToVersion6(db);
+        if (oldVersion < 7) upgradeToVersion7(db);
+        if (oldVersion < 8) upgradeToVersion8(db);
+        if (oldVersion < 9) upgradeToVersion9(db);
+        if (oldVersion < 10) upgradeToVersion10(db);
+        if (oldVersion < 11) upgradeToVersion11(db);
+    }
+
+    /**
+     * Reclaims the space freed by an upgrade that rewrote the stored submissions, which can only
+     * be done outside of the upgrade's transaction.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (mVacuumOnOpen && !db.isReadOnly()) {
+            mVacuumOnOpen = false;
+            db.execSQL("VACUUM");
+        }
+    }
+
+    /**
+     * Rebuilds the submissions table in the current schema from the JSON of the stored
+     * submissions.
+     *
+     * @param db          the {@code SQLiteDatabase} to rebuild
+     * @param hasPosition true if the stored submissions have a saved position to keep the order of
+     */
+    private void rebuildFromJson(SQLiteDatabase db, boolean hasPosition) {
+        String oldTable = SubmissionsContract.SubmissionEntry.TABLE_NAME + "_old";
+        db.execSQL("ALTER TABLE " + SubmissionsContract.SubmissionEntry.TABLE_NAME +
+                " RENAME TO " + oldTable);
+        db.execSQL(SubmissionsSchema.SQL_DELETE_SEARCH_ENTRIES);
+        db.execSQL(SubmissionsSchema.SQL_DELETE_SYNC_STATE_ENTRIES);
+        db.execSQL(SubmissionsSchema.SQL_DELETE_SUBREDDIT_ENTRIES);
+        db.execSQL("DROP INDEX IF EXISTS " + SubmissionsContract.SubmissionEntry.TABLE_NAME + "_" +
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + "_idx");
+        onCreate(db);
+        String[] projection = {SubmissionsContract.SubmissionEntry.COLUMN_NAME_JSON};
+        String sortOrder = hasPosition ? SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION
+                : SubmissionsContract.SubmissionEntry._ID;
+        Cursor c = db.query(oldTable, projection, null, null, null, null, sortOrder + " ASC");
+        List<Submission> submissions = new ArrayList<>(REBUILD_BATCH_SIZE);
+        while (c.moveToNext()) {
+            submissions.add(new Submission(JrawUtils.fromString(c.getString(0))));
+            if (submissions.size() == REBUILD_BATCH_SIZE) {
+                writeSubmissions(db, submissions, false);
+                submissions.clear();
+            }
+        }
+        c.close();
+        writeSubmissions(db, submissions, false);
+        db.execSQL("DROP TABLE " + oldTable);
+    }
+
+    /**
+     * Upgrades version 4 of the submissions table, which stored the score as text along with a
+     * formatted date, to typed columns with indexes on the subreddit and creation time.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion5(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE submissions RENAME TO submissions_v4");
+        db.execSQL("DROP INDEX IF EXISTS submissions_position_idx");
+        db.execSQL("CREATE TABLE submissions (_id INTEGER PRIMARY KEY," +
+                "fullname TEXT NOT NULL UNIQUE,title TEXT,subreddit TEXT,score INTEGER," +
+                "created_utc INTEGER,permalink TEXT,json TEXT,position INTEGER);");
+        db.execSQL("INSERT INTO submissions (_id,fullname,title,subreddit,score,created_utc," +
+                "permalink,json,position) SELECT _id,fullname,title,subreddit," +
+                "CAST(score AS INTEGER),created_utc,permalink,json,position FROM submissions_v4;");
+        db.execSQL("DROP TABLE submissions_v4");
+        db.execSQL("CREATE INDEX submissions_position_idx ON submissions (position);");
+        db.execSQL("CREATE INDEX submissions_subreddit_idx ON submissions (subreddit);");
+        db.execSQL("CREATE INDEX submissions_created_utc_idx ON submissions (created_utc);");
+    }
+
+    /**
+     * Upgrades version 5 of the submissions table, replacing the subreddit index with one that
+     * also covers the saved order so a subreddit's pages are read straight from the index.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion6(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS submissions_subreddit_idx");
+        db.execSQL("CREATE INDEX submissions_subreddit_idx ON submissions (subreddit,position);");
+    }
+
+    /**
+     * Upgrades version 6 of the database by adding the full-text search index and indexing the
+     * stored submissions from their JSON.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion7(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE submissions_fts USING fts4(title,subreddit,selftext," +
+                "author);");
+        SQLiteStatement index = db.compileStatement("INSERT INTO submissions_fts (docid,title," +
+                "subreddit,selftext,author) VALUES (?, ?, ?, ?, ?);");
+        Cursor c = db.query("submissions", new String[]{"_id", "json"}, null, null, null, null,
+                null);
+        while (c.moveToNext()) {
+            bind(index, SubmissionsSchema.searchEntryArgs(c.getLong(0),
+                    new Submission(JrawUtils.fromString(c.getString(1)))));
+            index.executeInsert();
+        }
+        c.close();
+        index.close();
+    }
+
+    /**
+     * Upgrades version 7 of the database by adding the table recording the progress of the saved
+     * history walk.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion8(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE sync_state (listing TEXT PRIMARY KEY,after TEXT," +
+                "complete INTEGER);");
+    }
+
+    /**
+     * Upgrades version 8 of the database by storing the page limit along with each listing's
+     * cursor.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion9(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE sync_state ADD COLUMN page_limit INTEGER;");
+    }
+
+    /**
+     * Upgrades version 9 of the database by adding the subreddit counts, counted from the stored
+     * submissions and maintained by triggers from then on.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion10(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE subreddits (subreddit TEXT PRIMARY KEY," +
+                "submission_count INTEGER NOT NULL);");
+        db.execSQL("INSERT INTO subreddits (subreddit,submission_count) SELECT subreddit," +
+                "COUNT(*) FROM submissions WHERE subreddit IS NOT NULL GROUP BY subreddit;");
+        for (String trigger : SQL_CREATE_SUBREDDIT_TRIGGERS_V10) db.execSQL(trigger);
+    }
+
+    /**
+     * Upgrades version 10 of the submissions table, which stored each submission's full JSON
+     * text, to store the compact payload of {@link SubmissionCodec} instead.
+     * <p>
+     * The table is rebuilt without the JSON column, keeping the row ids the search index refers
+     * to, and the freed space is reclaimed once the database is opened.
+     *
+     * @param db the {@code SQLiteDatabase} to upgrade
+     */
+    private void upgradeToVersion11(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE submissions RENAME TO submissions_v10");
+        db.execSQL("DROP INDEX IF EXISTS submissions_position_idx");
+        db.execSQL("DROP INDEX IF EXISTS submissions_subreddit_idx");
+        db.execSQL("DROP INDEX IF EXISTS submissions_created_utc_idx");
+        db.execSQL("CREATE TABLE submissions (_id INTEGER PRIMARY KEY," +
+                "fullname TEXT NOT NULL UNIQUE,title TEXT,subreddit TEXT,score INTEGER," +
+                "created_utc INTEGER,permalink TEXT,payload BLOB,position INTEGER);");
+        db.execSQL("INSERT INTO submissions (_id,fullname,title,subreddit,score,created_utc," +
+                "permalink,position) SELECT _id,fullname,title,subreddit,score,created_utc," +
+                "permalink,position FROM submissions_v10;");
+        SQLiteStatement update = db.compileStatement("UPDATE submissions SET payload = ? " +
+                "WHERE _id = ?;");
+        Cursor c = db.query("submissions_v10", new String[]{"_id", "json"}, "json IS NOT NULL",
+                null, null, null, null);
+        while (c.moveToNext()) {
+            update.bindBlob(1, SubmissionCodec.encode(JrawUtils.fromString(c.getString(1))));
+            update.bindLong(2, c.getLong(0));
+            update.executeUpdateDelete();
+        }
+        c.close();
+        update.close();
+        db.execSQL("DROP TABLE submissions_v10");
+        db.execSQL("CREATE INDEX submissions_position_idx ON submissions (position);");
+        db.execSQL("CREATE INDEX submissions_subreddit_idx ON submissions (subreddit,position);");
+        db.execSQL("CREATE INDEX submissions_created_utc_idx ON submissions (created_utc);");
+        for (String trigger : SQL_CREATE_SUBREDDIT_TRIGGERS_V10) db.execSQL(trigger);
+        mVacuumOnOpen = true;
     }
 
     /**
      * Resets the given {@code SQLiteDatabase} to a new state.
      */
+    @Override
     public void reset() {
+        Map<String, Integer> before = mSubredditChanges.hasObservers() ? getSubredditCounts()
+                : null;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            for (String statement : SubmissionsSchema.SQL_DELETE_ENTRIES) db.execSQL(statement);
+            onCreate(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mCache.clear();
+            mLastRevalidated = 0;
+        }
+        if (before != null) publishSubredditCounts(before.keySet(), before);
+    }
+
+    /**
+     * Adds the given list of {@code Submission}s to the end of the submissions database.
+     * <p>
+     * Submissions are keyed by their fullname, so a {@code Submission} that is already stored is
+     * updated in place rather than added again. The whole list is written in a single transaction
+     * through compiled statements, so a page of submissions costs one commit instead of one per row.
+     *
+     * @param submissions the list of {@code Submission}s to add, in saved order
+     */
+    @Override
+    public void addSubmissions(List<Submission> submissions) {
+        addSubmissions(submissions, false);
+    }
+
+    /**
+     * Adds the given list of newly saved {@code Submission}s in front of the stored submissions.
+     *
+     * @param submissions the list of {@code Submission}s to add, in saved order
+     * @see #addSubmissions(List)
+     */
+    @Override
+    public void addNewestSubmissions(List<Submission> submissions) {
+        addSubmissions(submissions, true);
+    }
+
+    /**
+     * Adds the given page of the saved history walk to the end of the submissions database along
+     * with the cursor of the walk, in a single transaction.
+     * <p>
+     * A stored cursor therefore always points right after the last committed page, so a walk
+     * that is killed halfway resumes without losing or repeating a page.
+     *
+     * @param submissions the page of {@code Submission}s to add, in saved order
+     * @param after       the fullname to continue the walk after, null if the walk is complete
+     * @param limit       the number of submissions requested per page
+     */
+    @Override
+    public void addSyncedSubmissions(List<Submission> submissions, String after, int limit) {
+        addListedSubmissions(SubmissionsSchema.HISTORY_LISTING, submissions, after, limit);
+    }
+
+    /**
+     * Adds the given page downloaded on demand to the end of the submissions database along with
+     * the cursor of the next page, in a single transaction.
+     *
+     * @param submissions the page of {@code Submission}s to add, in saved order
+     * @param after       the fullname the next page starts after, null if this is the last page
+     * @param limit       the number of submissions requested per page
+     * @see #addSyncedSubmissions(List, String, int)
+     */
+    @Override
+    public void addPagedSubmissions(List<Submission> submissions, String after, int limit) {
+        addListedSubmissions(SubmissionsSchema.PAGES_LISTING, submissions, after, limit);
+    }
+
+    /**
+     * Adds the given page of the given listing to the end of the submissions database along with
+     * the listing's cursor, in a single transaction.
+     *
+     * @param listing     the listing the page belongs to
+     * @param submissions the page of {@code Submission}s to add, in saved order
+     * @param after       the fullname the listing continues after, null if the listing ended
+     * @param limit       the number of submissions requested per page
+     */
+    private void addListedSubmissions(String listing, List<Submission> submissions, String after,
+                                      int limit) {
+        Set<String> subreddits = SubmissionLists.getSubredditNames(submissions);
+        Map<String, Integer> before = mSubredditChanges.hasObservers()
+                ? getSubredditCounts(subreddits) : null;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            if (!submissions.isEmpty()) writeSubmissions(db, submissions, false);
+            db.execSQL(SubmissionsSchema.SQL_REPLACE_SYNC_STATE,
+                    SubmissionsSchema.syncStateArgs(listing, after, limit));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mCache.invalidate(submissions);
+        }
+        publishSubredditCounts(subreddits, before);
+    }
+
+    /**
+     * Gets the fullname the saved history walk continues after.
+     *
+     * @return the fullname to continue the walk after, null if the walk has not started or is
+     * complete
+     */
+    @Override
+    public String getSyncAfter() {
+        return getSyncState(SubmissionsSchema.HISTORY_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_AFTER);
+    }
+
+    /**
+     * Determines whether the saved history walk has reached the end of the listing.
+     *
+     * @return true if every saved submission has been stored
+     */
+    @Override
+    public boolean isSyncComplete() {
+        return "1".equals(getSyncState(SubmissionsSchema.HISTORY_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE));
+    }
+
+    /**
+     * Gets the fullname the next page downloaded on demand starts after, the last stored
+     * submission in saved order.
+     * <p>
+     * Paging continues after the last stored submission whichever listing stored it, so the
+     * pages already stored by the saved history walk are never downloaded again.
+     *
+     * @return the fullname the next page starts after, null if nothing is stored
+     */
+    @Override
+    public String getPageAfter() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.rawQuery(SubmissionsSchema.SQL_SELECT_LAST_FULLNAME, null);
+        String last = c.moveToFirst() ? c.getString(0) : null;
+        c.close();
+        return last;
+    }
+
+    /**
+     * Determines whether paging on demand has reached the end of the saved listing.
+     *
+     * @return true if the last page downloaded on demand was the last page of the listing
+     */
+    @Override
+    public boolean isPagingComplete() {
+        return "1".equals(getSyncState(SubmissionsSchema.PAGES_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE));
+    }
+
+    /**
+     * Gets the number of submissions requested per page downloaded on demand.
+     *
+     * @return the stored page limit, 0 if no page has been downloaded on demand
+     */
+    @Override
+    public int getPageLimit() {
+        String limit = getSyncState(SubmissionsSchema.PAGES_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_PAGE_LIMIT);
+        return limit == null ? 0 : Integer.parseInt(limit);
+    }
+
+    /**
+     * Gets the time the stored submissions were last revalidated against the client.
+     *
+     * @return the time in milliseconds since the epoch, 0 if the stored submissions have not been
+     * revalidated since the app started or the database was reset
+     */
+    @Override
+    public long getLastRevalidated() {
+        return mLastRevalidated;
+    }
+
+    /**
+     * Sets the time the stored submissions were last revalidated against the client.
+     *
+     * @param time the time in milliseconds since the epoch
+     */
+    @Override
+    public void setLastRevalidated(long time) {
+        mLastRevalidated = time;
+    }
+
+    /**
+     * Gets the given column of the given listing's sync state.
+     *
+     * @param listing the listing to get the state of
+     * @param column  the column to get
+     * @return the column's value, null if the listing has no state
+     */
+    private String getSyncState(String listing, String column) {
         SQLiteDatabase db = getReadableDatabase();
-        db.execSQL(SQL_DELETE_TASKS_ENTRIES);
-        db.execSQL(SQL_CREATE_TASKS_ENTRIES);
+        Cursor c = db.rawQuery(SubmissionsSchema.syncStateQuery(column), new String[]{listing});
+        String value = c.moveToFirst() ? c.getString(0) : null;
+        c.close();
+        return value;
     }
 
     /**
-     * Adds the given list of {@code Submission}s to the submissions database.
+     * Adds the given list of {@code Submission}s either in front of or after the stored
+     * submissions, keeping the list's order.
      *
      * @param submissions the list of {@code Submission}s to add
+     * @param newest      true if the submissions are more recent than the stored submissions
      */
-    public void addSubmissions(List<Submission> submissions) {
+    private void addSubmissions(List<Submission> submissions, boolean newest) {
+        if (submissions.isEmpty()) return;
+        Set<String> subreddits = SubmissionLists.getSubredditNames(submissions);
+        Map<String, Integer> before = mSubredditChanges.hasObservers()
+                ? getSubredditCounts(subreddits) : null;
         SQLiteDatabase db = getWritableDatabase();
-        for (Submission submission : submissions) {
-            addSubmission(db, submission);
+        db.beginTransactionNonExclusive();
+        try {
+            writeSubmissions(db, submissions, newest);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mCache.invalidate(submissions);
+        }
+        publishSubredditCounts(subreddits, before);
+    }
+
+    /**
+     * Writes the given list of {@code Submission}s to the given {@code SQLiteDatabase} either in
+     * front of or after the stored submissions, keeping the list's order.
+     * <p>
+     * The caller is responsible for the surrounding transaction.
+     *
+     * @param db          the {@code SQLiteDatabase} to write to
+     * @param submissions the list of {@code Submission}s to write
+     * @param newest      true if the submissions are more recent than the stored submissions
+     */
+    private void writeSubmissions(SQLiteDatabase db, List<Submission> submissions,
+                                  boolean newest) {
+        if (submissions.isEmpty()) return;
+        SQLiteStatement update = db.compileStatement(SubmissionsSchema.SQL_UPDATE_ENTRY);
+        SQLiteStatement insert = db.compileStatement(SubmissionsSchema.SQL_INSERT_ENTRY);
+        SQLiteStatement selectId = db.compileStatement(SubmissionsSchema.SQL_SELECT_ENTRY_ID);
+        SQLiteStatement index = db.compileStatement(SubmissionsSchema.SQL_INDEX_SEARCH_ENTRY);
+        try {
+            long position = SubmissionsSchema.firstPosition(DatabaseUtils.longForQuery(db,
+                    SubmissionsSchema.positionQuery(newest), null), submissions.size(), newest);
+            for (Submission submission : submissions) {
+                long id = addSubmission(update, insert, selectId, submission, position++);
+                bind(index, SubmissionsSchema.searchEntryArgs(id, submission));
+                index.executeInsert();
+            }
+        } finally {
+            update.close();
+            insert.close();
+            selectId.close();
+            index.close();
         }
-        db.close();
     }
 
     /**
-     * Adds the given {@code Submission} to the given {@code SQLiteDatabase}.
+     * Adds the given {@code Submission} using the given compiled statements, updating the stored
+     * entry with the same fullname if there is one.
      *
-     * @param db         the {@code SQLiteDatabase} to add to
+     * @param update     the compiled update statement
+     * @param insert     the compiled insert statement
+     * @param selectId   the compiled statement used to look up the id of an updated entry
      * @param submission the {@code Submission} to add
+     * @param position   the position to insert the {@code Submission} at
+     * @return the row id of the stored {@code Submission}
      */
-    private void addSubmission(SQLiteDatabase db, Submission submission) {
-        ContentValues values = new ContentValues();
-        values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE, submission.getTitle());
-        values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT, submission.getSubredditName());
-        values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE, submission.getScore());
-        values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_DATE_SUBMITTED, submission.getCreated().toString());
-        values.put(SubmissionsContract.SubmissionEntry.COLUMN_NAME_JSON, submission.getDataNode().toString());
-        db.insert(SubmissionsContract.SubmissionEntry.TABLE_NAME, null, values);
+    private long addSubmission(SQLiteStatement update, SQLiteStatement insert,
+                               SQLiteStatement selectId, Submission submission, long position) {
+        Object[] args = SubmissionsSchema.entryArgs(submission);
+        bind(update, args);
+        if (update.executeUpdateDelete() > 0) {
+            selectId.bindString(1, submission.getFullName());
+            return selectId.simpleQueryForLong();
+        }
+        bind(insert, args);
+        insert.bindLong(args.length + 1, position);
+        return insert.executeInsert();
     }
 
     /**
-     * Gets the list of {@code Submission}s from the submissions database.
+     * Binds the given arguments to the given statement, in order.
      *
-     * @return the list of {@code Submission}s found in the submissions database
+     * @param statement the compiled statement to bind to
+     * @param args      the arguments to bind, may contain null
      */
-    public List<Submission> getSubmissions() {
+    private static void bind(SQLiteStatement statement, Object[] args) {
+        statement.clearBindings();
+        for (int i = 0; i < args.length; i++)
+            DatabaseUtils.bindObjectToProgram(statement, i + 1, args[i]);
+    }
+
+    /**
+     * Gets a page of {@code SubmissionSummary}s from the submissions database, in saved order.
+     * <p>
+     * Pages are keyed by the last {@code Submission} of the previous page rather than an offset,
+     * so reading any page only touches the rows it returns. Filtering by subreddit is done by
+     * SQLite using the subreddit index, so only matching rows are read.
+     *
+     * @param subreddit     the subreddit to filter by, use null to not filter submissions
+     * @param afterFullName the fullname of the last {@code Submission} of the previous page, use
+     *                      null to get the first page
+     * @param limit         the maximum number of {@code SubmissionSummary}s to get
+     * @return the page of {@code SubmissionSummary}s found in the submissions database
+     */
+    @Override
+    public List<SubmissionSummary> getSubmissions(String subreddit, String afterFullName,
+                                                  int limit) {
+        List<String> clauses = new ArrayList<>();
+        List<String> selectionArgs = new ArrayList<>();
+        if (subreddit != null) {
+            clauses.add(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + " = ?");
+            selectionArgs.add(subreddit);
+        }
+        if (afterFullName != null) {
+            clauses.add(SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " > (SELECT " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " FROM " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " WHERE " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?)");
+            selectionArgs.add(afterFullName);
+        }
+        String selection = clauses.isEmpty() ? null : TextUtils.join(" AND ", clauses);
+        return getSummaries(selection, selectionArgs.toArray(new String[selectionArgs.size()]),
+                SubmissionSort.SAVED, limit);
+    }
+
+    /**
+     * Searches the submissions database's full-text index for submissions matching the given
+     * query.
+     * <p>
+     * Every word of the query is matched as a prefix against the title, subreddit, self text and
+     * author of the submissions. Submissions with more matches are ranked first, ties keep the
+     * saved order.
+     *
+     * @param subreddit the subreddit to filter by, use null to not filter submissions
+     * @param query     the words to search for
+     * @param limit     the maximum number of {@code SubmissionSummary}s to get
+     * @return the ranked {@code SubmissionSummary}s matching the query
+     */
+    @Override
+    public List<SubmissionSummary> searchSubmissions(String subreddit, String query, int limit) {
+        List<SubmissionSummary> submissions = new ArrayList<>();
+        String match = SubmissionsSchema.toMatchExpression(query);
+        if (match.isEmpty()) return submissions;
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(match);
+        if (subreddit != null) selectionArgs.add(subreddit);
         SQLiteDatabase db = getReadableDatabase();
-        List<Submission> submissions = new ArrayList<>();
-        String[] projection = {SubmissionsContract.SubmissionEntry.COLUMN_NAME_JSON};
-        String sortOrder = SubmissionsContract.SubmissionEntry._ID + " ASC";
-        Cursor c = db.query(SubmissionsContract.SubmissionEntry.TABLE_NAME, projection, null,
-                null, null, null, sortOrder);
+        Cursor c = db.rawQuery(SubmissionsSchema.searchQuery(subreddit != null, limit),
+                selectionArgs.toArray(new String[selectionArgs.size()]));
+        while (c.moveToNext()) {
+            submissions.add(new SubmissionSummary(c.getString(0), c.getString(1), c.getString(2),
+                    c.getInt(3), c.getLong(4), c.getString(5)));
+        }
+        c.close();
+        return submissions;
+    }
+
+    /**
+     * Gets the {@code SubmissionSummary}s created within the given range from the submissions
+     * database, in the given order.
+     * <p>
+     * Both the range and the order are resolved by SQLite using the typed, indexed columns.
+     *
+     * @param sort           the order to get the {@code SubmissionSummary}s in
+     * @param fromCreatedUtc the earliest creation time to include, in seconds since the epoch
+     * @param toCreatedUtc   the latest creation time to include, in seconds since the epoch
+     * @param limit          the maximum number of {@code SubmissionSummary}s to get
+     * @return the {@code SubmissionSummary}s found in the submissions database
+     */
+    @Override
+    public List<SubmissionSummary> getSortedSubmissions(SubmissionSort sort, long fromCreatedUtc,
+                                                        long toCreatedUtc, int limit) {
+        String selection = SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC +
+                " BETWEEN ? AND ?";
+        String[] selectionArgs = {String.valueOf(fromCreatedUtc), String.valueOf(toCreatedUtc)};
+        return getSummaries(selection, selectionArgs, sort, limit);
+    }
+
+    /**
+     * Gets the {@code SubmissionSummary}s matching the given selection from the submissions
+     * database.
+     * <p>
+     * Only the summary columns are read, the stored JSON is left untouched.
+     *
+     * @param selection     the SQL WHERE clause to filter by, use null to get every submission
+     * @param selectionArgs the arguments of the selection
+     * @param sort          the order to get the {@code SubmissionSummary}s in
+     * @param limit         the maximum number of {@code SubmissionSummary}s to get
+     * @return the {@code SubmissionSummary}s found in the submissions database
+     */
+    private List<SubmissionSummary> getSummaries(String selection, String[] selectionArgs,
+                                                 SubmissionSort sort, int limit) {
+        SQLiteDatabase db = getReadableDatabase();
+        List<SubmissionSummary> submissions = new ArrayList<>();
+        Cursor c = db.query(SubmissionsContract.SubmissionEntry.TABLE_NAME,
+                SubmissionsSchema.SUMMARY_PROJECTION, selection, selectionArgs, null, null,
+                sort.getOrderBy(), String.valueOf(limit));
         while (c.moveToNext()) {
-            int jsonColIndex = c.getColumnIndex(SubmissionsContract.SubmissionEntry.COLUMN_NAME_JSON);
-            String json = c.getString(jsonColIndex);
-            JsonNode jsonNode = JrawUtils.fromString(json);
-            Submission submission = new Submission(jsonNode);
-            submissions.add(submission);
+            submissions.add(new SubmissionSummary(c.getString(0), c.getString(1), c.getString(2),
+                    c.getInt(3), c.getLong(4), c.getString(5)));
         }
         c.close();
-        db.close();
         return submissions;
     }
 
+    /**
+     * Gets the full {@code Submission} with the given fullname, from the cache of hydrated
+     * submissions if possible, otherwise from the submissions database.
+     *
+     * @param fullName the fullname of the {@code Submission}
+     * @return the stored {@code Submission}, or null if it is not stored
+     */
+    @Override
+    public Submission getSubmission(String fullName) {
+        Submission cached = mCache.get(fullName);
+        if (cached != null) return cached;
+        long generation = mCache.getGeneration();
+        SQLiteDatabase db = getReadableDatabase();
+        String[] projection = {SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD};
+        String selection = SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?";
+        Cursor c = db.query(SubmissionsContract.SubmissionEntry.TABLE_NAME, projection, selection,
+                new String[]{fullName}, null, null, null);
+        Submission submission = null;
+        if (c.moveToFirst()) {
+            byte[] payload = c.getBlob(0);
+            submission = SubmissionCodec.decode(payload);
+            mCache.put(fullName, submission, payload.length, generation);
+        }
+        c.close();
+        return submission;
+    }
+
+    /**
+     * Gets the cache of hydrated submissions in front of the submissions database, exposing its
+     * hit and miss counters.
+     *
+     * @return the cache of hydrated submissions
+     */
+    public SubmissionCache getSubmissionCache() {
+        return mCache;
+    }
+
+    /**
+     * Gets the number of {@code Submission}s stored in the submissions database.
+     *
+     * @return the number of stored {@code Submission}s
+     */
+    @Override
+    public long getSubmissionCount() {
+        SQLiteDatabase db = getReadableDatabase();
+        long count = DatabaseUtils.queryNumEntries(db,
+                SubmissionsContract.SubmissionEntry.TABLE_NAME);
+        return count;
+    }
+
+    /**
+     * Determines whether a {@code Submission} with the given fullname is stored in the
+     * submissions database.
+     *
+     * @param fullName the fullname of the {@code Submission}
+     * @return true if the {@code Submission} is stored
+     */
+    @Override
+    public boolean hasSubmission(String fullName) {
+        SQLiteDatabase db = getReadableDatabase();
+        long count = DatabaseUtils.queryNumEntries(db,
+                SubmissionsContract.SubmissionEntry.TABLE_NAME,
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?",
+                new String[]{fullName});
+        return count > 0;
+    }
+
     /**
      * Gets the set of unique subreddits from the submissions database.
      * <p>
-     * The set is in a case insensitive order.
+     * The set is in a case insensitive order, and is read from the maintained subreddit counts
+     * rather than scanning the submissions.
      *
      * @return the set of unqiue subreddits found in the submissions database
      */
+    @Override
     public Set<String> getSubreddits() {
-        SQLiteDatabase db = getReadableDatabase();
         Set<String> subreddits = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        String[] projection = {SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT};
-        String sortOrder = SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + " ASC";
-        Cursor c = db.query(true, SubmissionsContract.SubmissionEntry.TABLE_NAME, projection, null,
-                null, null, null, sortOrder, null);
+        subreddits.addAll(getSubredditCounts().keySet());
+        return subreddits;
+    }
+
+    /**
+     * Gets the number of stored submissions of every subreddit.
+     *
+     * @return the number of stored submissions keyed by subreddit, in a case insensitive order
+     */
+    @Override
+    public Map<String, Integer> getSubredditCounts() {
+        return querySubredditCounts(SubmissionsSchema.subredditCountsQuery(0), null);
+    }
+
+    /**
+     * Gets the number of stored submissions of the given subreddits.
+     *
+     * @param subreddits the subreddits to count
+     * @return the number of stored submissions keyed by subreddit, subreddits without stored
+     * submissions are left out
+     */
+    private Map<String, Integer> getSubredditCounts(Set<String> subreddits) {
+        if (subreddits.isEmpty()) return new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        return querySubredditCounts(SubmissionsSchema.subredditCountsQuery(subreddits.size()),
+                subreddits.toArray(new String[subreddits.size()]));
+    }
+
+    private Map<String, Integer> querySubredditCounts(String sql, String[] selectionArgs) {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.rawQuery(sql, selectionArgs);
         while (c.moveToNext()) {
-            int subIndex = c.getColumnIndex(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT);
-            subreddits.add(c.getString(subIndex));
+            counts.put(c.getString(0), c.getInt(1));
         }
         c.close();
-        db.close();
-        return subreddits;
+        return counts;
+    }
+
+    /**
+     * Gets the observable watching the number of stored submissions per subreddit.
+     * <p>
+     * A subscriber first receives the counts of every subreddit, then after every committed
+     * write only the new counts of the subreddits the write changed. A count of 0 means the
+     * subreddit no longer has stored submissions.
+     *
+     * @return the observable emitting the subreddit counts followed by their changes
+     */
+    @Override
+    public Observable<Map<String, Integer>> watchSubredditCounts() {
+        return Observable.create(subscriber -> {
+            synchronized (mSubredditLock) {
+                subscriber.onNext(getSubredditCounts());
+                mSubredditChanges.unsafeSubscribe(subscriber);
+            }
+        });
+    }
+
+    /**
+     * Publishes the counts of the given subreddits that differ from the given counts taken
+     * before a write.
+     *
+     * @param subreddits the subreddits the write touched
+     * @param before     the counts of the subreddits before the write, null to publish every
+     *                   count
+     */
+    private void publishSubredditCounts(Set<String> subreddits, Map<String, Integer> before) {
+        synchronized (mSubredditLock) {
+            if (subreddits.isEmpty() || !mSubredditChanges.hasObservers()) return;
+            Map<String, Integer> changes = SubmissionLists.diffSubredditCounts(subreddits, before,
+                    getSubredditCounts(subreddits));
+            if (!changes.isEmpty()) mSubredditChanges.onNext(changes);
+        }
     }
 }
@@ -0,0 +1,108 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Operations over lists of submissions used by the {@link DataManager} and the stores.
+ * <p>
+ * They only depend on JRAW, so the benchmark module measures them on the JVM.
+ */
+final class SubmissionLists {
+    private SubmissionLists() {
+    }
+
+    /**
+     * Summarizes the given list of submissions.
+     *
+     * @param submissions the list of submissions to summarize
+     * @return the list of summaries, in the same order
+     */
+    static List<SubmissionSummary> summarize(List<Submission> submissions) {
+        List<SubmissionSummary> summaries = new ArrayList<>(submissions.size());
+        for (Submission submission : submissions) {
+            summaries.add(SubmissionSummary.from(submission));
+        }
+        return summaries;
+    }
+
+    /**
+     * Filters the given list of submissions down to the submissions belonging to the given
+     * subreddit.
+     *
+     * @param submissions the list of submissions to filter
+     * @param subreddit   the subreddit to filter by, a null subreddit always results in a match
+     * @return the list of matching submissions, in the same order
+     */
+    static List<SubmissionSummary> filter(List<SubmissionSummary> submissions, String subreddit) {
+        if (subreddit == null) return submissions;
+        List<SubmissionSummary> matched = new ArrayList<>();
+        for (SubmissionSummary submission : submissions) {
+            if (subreddit.equals(submission.getSubreddit())) matched.add(submission);
+        }
+        return matched;
+    }
+
+    /**
+     * Gets the subreddits of the given list of submissions.
+     *
+     * @param submissions the list of submissions
+     * @return the set of subreddits of the submissions that have one
+     */
+    static Set<String> getSubredditNames(List<Submission> submissions) {
+        Set<String> subreddits = new HashSet<>();
+        for (Submission submission : submissions) {
+            if (submission.getSubredditName() != null)
+                subreddits.add(submission.getSubredditName());
+        }
+        return subreddits;
+    }
+
+    /**
+     * Gets the counts of the given subreddits that a write changed.
+     *
+     * @param subreddits the subreddits the write touched
+     * @param before     the stored counts of the subreddits before the write, null if they were
+     *                   not read, in which case every count is a change
+     * @param after      the stored counts of the subreddits after the write
+     * @return the new counts of the changed subreddits, 0 if a subreddit is gone
+     */
+    static Map<String, Integer> diffSubredditCounts(Set<String> subreddits,
+                                                    Map<String, Integer> before,
+                                                    Map<String, Integer> after) {
+        Map<String, Integer> changes = new HashMap<>();
+        for (String subreddit : subreddits) {
+            Integer count = after.get(subreddit);
+            if (count == null) count = 0;
+            Integer previous = before == null ? null : before.get(subreddit);
+            if (before == null || !count.equals(previous == null ? 0 : previous))
+                changes.put(subreddit, count);
+        }
+        return changes;
+    }
+
+    /**
+     * Folds the given subreddit count changes into a copy of the given subreddit counts.
+     *
+     * @param counts  the current number of stored submissions of every subreddit
+     * @param changes the new counts of the changed subreddits, 0 if a subreddit is gone
+     * @return the updated counts, in a case insensitive order
+     */
+    static Map<String, Integer> foldSubredditCounts(Map<String, Integer> counts,
+                                                    Map<String, Integer> changes) {
+        Map<String, Integer> updated = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        updated.putAll(counts);
+        for (Map.Entry<String, Integer> change : changes.entrySet()) {
+            if (change.getValue() > 0) updated.put(change.getKey(), change.getValue());
+            else updated.remove(change.getKey());
+        }
+        return updated;
+    }
+}
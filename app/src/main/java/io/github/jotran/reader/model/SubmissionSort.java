@@ -0,0 +1,39 @@
+package io.github.jotran.reader.model;
+
+/**
+ * The orders the stored submissions can be sorted in.
+ */
+public enum SubmissionSort {
+    /**
+     * The order the submissions were saved in, most recently saved first.
+     */
+    SAVED(SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " ASC"),
+    /**
+     * Most recently created submissions first.
+     */
+    NEWEST(SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + " DESC"),
+    /**
+     * Least recently created submissions first.
+     */
+    OLDEST(SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + " ASC"),
+    /**
+     * Highest scoring submissions first.
+     */
+    TOP(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + " DESC");
+
+    private final String mOrderBy;
+
+    SubmissionSort(String orderBy) {
+        mOrderBy = orderBy;
+    }
+
+    /**
+     * Gets the SQL ordering term for this sort, ties are broken by the saved order.
+     *
+     * @return the SQL ordering term for this sort
+     */
+    String getOrderBy() {
+        if (this == SAVED) return mOrderBy;
+        return mOrderBy + ", " + SAVED.mOrderBy;
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rx.Observable;
+
+/**
+ * Storage of the saved submissions and the cursors of the listings they were downloaded from,
+ * used by the {@link DataManager}.
+ * <p>
+ * {@link SubmissionDbHelper} stores them in the app's SQLite database on Android. Any
+ * implementation must keep the saved order, update already stored submissions in place and
+ * commit every write as a whole.
+ */
+public interface SubmissionStore {
+    /**
+     * Removes every stored submission and listing cursor.
+     */
+    void reset();
+
+    /**
+     * Adds the given list of {@code Submission}s after the stored submissions.
+     *
+     * @param submissions the list of {@code Submission}s to add, in saved order
+     */
+    void addSubmissions(List<Submission> submissions);
+
+    /**
+     * Adds the given list of newly saved {@code Submission}s in front of the stored submissions.
+     *
+     * @param submissions the list of {@code Submission}s to add, in saved order
+     */
+    void addNewestSubmissions(List<Submission> submissions);
+
+    /**
+     * Adds the given page of the saved history walk after the stored submissions along with the
+     * cursor of the walk.
+     *
+     * @param submissions the page of {@code Submission}s to add, in saved order
+     * @param after       the fullname to continue the walk after, null if the walk is complete
+     * @param limit       the number of submissions requested per page
+     */
+    void addSyncedSubmissions(List<Submission> submissions, String after, int limit);
+
+    /**
+     * Adds the given page downloaded on demand after the stored submissions along with the
+     * cursor of the next page.
+     *
+     * @param submissions the page of {@code Submission}s to add, in saved order
+     * @param after       the fullname the next page starts after, null if this is the last page
+     * @param limit       the number of submissions requested per page
+     */
+    void addPagedSubmissions(List<Submission> submissions, String after, int limit);
+
+    /**
+     * Gets the fullname the saved history walk continues after.
+     *
+     * @return the fullname to continue the walk after, null if the walk has not started or is
+     * complete
+     */
+    String getSyncAfter();
+
+    /**
+     * Determines whether the saved history walk has reached the end of the listing.
+     *
+     * @return true if every saved submission has been stored
+     */
+    boolean isSyncComplete();
+
+    /**
+     * Gets the fullname the next page downloaded on demand starts after, the last stored
+     * submission in saved order whichever listing stored it.
+     *
+     * @return the fullname the next page starts after, null if nothing is stored
+     */
+    String getPageAfter();
+
+    /**
+     * Determines whether paging on demand has reached the end of the saved listing.
+     *
+     * @return true if the last page downloaded on demand was the last page of the listing
+     */
+    boolean isPagingComplete();
+
+    /**
+     * Gets the number of submissions requested per page downloaded on demand.
+     *
+     * @return the stored page limit, 0 if no page has been downloaded on demand
+     */
+    int getPageLimit();
+
+    /**
+     * Gets the time the stored submissions were last revalidated against the client.
+     * <p>
+     * The time is kept by the store rather than by its users, so every {@code DataManager} of
+     * the process shares it.
+     *
+     * @return the time in milliseconds since the epoch, 0 if the stored submissions have not been
+     * revalidated since the store was opened or reset
+     */
+    long getLastRevalidated();
+
+    /**
+     * Sets the time the stored submissions were last revalidated against the client.
+     *
+     * @param time the time in milliseconds since the epoch
+     */
+    void setLastRevalidated(long time);
+
+    /**
+     * Gets a page of {@code SubmissionSummary}s in saved order, keyed by the last
+     * {@code Submission} of the previous page.
+     *
+     * @param subreddit     the subreddit to filter by, use null to not filter submissions
+     * @param afterFullName the fullname of the last {@code Submission} of the previous page, use
+     *                      null to get the first page
+     * @param limit         the maximum number of {@code SubmissionSummary}s to get
+     * @return the page of stored {@code SubmissionSummary}s
+     */
+    List<SubmissionSummary> getSubmissions(String subreddit, String afterFullName, int limit);
+
+    /**
+     * Searches the stored submissions for every word of the given query, best matches first.
+     *
+     * @param subreddit the subreddit to filter by, use null to not filter submissions
+     * @param query     the words to search for
+     * @param limit     the maximum number of {@code SubmissionSummary}s to get
+     * @return the ranked {@code SubmissionSummary}s matching the query
+     */
+    List<SubmissionSummary> searchSubmissions(String subreddit, String query, int limit);
+
+    /**
+     * Gets the {@code SubmissionSummary}s created within the given range, in the given order.
+     *
+     * @param sort           the order to get the {@code SubmissionSummary}s in
+     * @param fromCreatedUtc the earliest creation time to include, in seconds since the epoch
+     * @param toCreatedUtc   the latest creation time to include, in seconds since the epoch
+     * @param limit          the maximum number of {@code SubmissionSummary}s to get
+     * @return the stored {@code SubmissionSummary}s
+     */
+    List<SubmissionSummary> getSortedSubmissions(SubmissionSort sort, long fromCreatedUtc,
+                                                 long toCreatedUtc, int limit);
+
+    /**
+     * Gets the full {@code Submission} with the given fullname.
+     *
+     * @param fullName the fullname of the {@code Submission}
+     * @return the stored {@code Submission}, or null if it is not stored
+     */
+    Submission getSubmission(String fullName);
+
+    /**
+     * Gets the number of stored {@code Submission}s.
+     *
+     * @return the number of stored {@code Submission}s
+     */
+    long getSubmissionCount();
+
+    /**
+     * Determines whether a {@code Submission} with the given fullname is stored.
+     *
+     * @param fullName the fullname of the {@code Submission}
+     * @return true if the {@code Submission} is stored
+     */
+    boolean hasSubmission(String fullName);
+
+    /**
+     * Gets the set of unique subreddits of the stored submissions.
+     *
+     * @return the set of unique subreddits, in a case insensitive order
+     */
+    Set<String> getSubreddits();
+
+    /**
+     * Gets the number of stored submissions of every subreddit.
+     *
+     * @return the number of stored submissions keyed by subreddit, in a case insensitive order
+     */
+    Map<String, Integer> getSubredditCounts();
+
+    /**
+     * Gets the observable watching the number of stored submissions per subreddit.
+     * <p>
+     * A subscriber first receives the counts of every subreddit, then after every committed
+     * write only the new counts of the subreddits the write changed. A count of 0 means the
+     * subreddit no longer has stored submissions.
+     *
+     * @return the observable emitting the subreddit counts followed by their changes
+     */
+    Observable<Map<String, Integer>> watchSubredditCounts();
+}
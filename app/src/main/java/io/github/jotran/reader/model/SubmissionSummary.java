@@ -0,0 +1,86 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.Date;
+
+/**
+ * Immutable summary of a saved {@code Submission}, holding only what is needed to list it.
+ * <p>
+ * Summaries are read straight from the stored database's columns, the full {@code Submission}
+ * can be retrieved using {@link DataManager#downloadSubmission(String)}.
+ */
+public final class SubmissionSummary {
+    private final String mFullName;
+    private final String mTitle;
+    private final String mSubreddit;
+    private final int mScore;
+    private final long mCreatedUtc;
+    private final String mPermalink;
+
+    /**
+     * Constructor for a {@code SubmissionSummary}.
+     *
+     * @param fullName   the fullname of the submission
+     * @param title      the title of the submission
+     * @param subreddit  the name of the subreddit the submission belongs to
+     * @param score      the score of the submission
+     * @param createdUtc the time the submission was created, in seconds since the epoch
+     * @param permalink  the permalink of the submission
+     */
+    public SubmissionSummary(String fullName, String title, String subreddit, int score,
+                             long createdUtc, String permalink) {
+        mFullName = fullName;
+        mTitle = title;
+        mSubreddit = subreddit;
+        mScore = score;
+        mCreatedUtc = createdUtc;
+        mPermalink = permalink;
+    }
+
+    /**
+     * Creates the summary of the given {@code Submission}.
+     *
+     * @param submission the {@code Submission} to summarize
+     * @return the summary of the given {@code Submission}
+     */
+    public static SubmissionSummary from(Submission submission) {
+        Integer score = submission.getScore();
+        return new SubmissionSummary(submission.getFullName(), submission.getTitle(),
+                submission.getSubredditName(), score == null ? 0 : score,
+                submission.getCreated().getTime() / 1000, submission.getPermalink());
+    }
+
+    public String getFullName() {
+        return mFullName;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getSubreddit() {
+        return mSubreddit;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public long getCreatedUtc() {
+        return mCreatedUtc;
+    }
+
+    /**
+     * Gets the time the submission was created.
+     *
+     * @return the time the submission was created
+     */
+    public Date getCreated() {
+        return new Date(mCreatedUtc * 1000);
+    }
+
+    public String getPermalink() {
+        return mPermalink;
+    }
+}
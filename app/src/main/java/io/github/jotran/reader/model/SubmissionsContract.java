@@ -1,16 +1,67 @@
 package io.github.jotran.reader.model;
 
-import android.provider.BaseColumns;
-
 public final class SubmissionsContract {
     public SubmissionsContract(){}
 
-    public static abstract class SubmissionEntry implements BaseColumns {
+    /**
+     * The stored submissions, {@code _ID} matches {@code BaseColumns._ID} without depending on the
+     * Android SDK.
+     */
+    public static abstract class SubmissionEntry {
+        public static final String _ID = "_id";
         public static final String TABLE_NAME = "submissions";
+        public static final String COLUMN_NAME_FULLNAME = "fullname";
         public static final String COLUMN_NAME_TITLE = "title";
         public static final String COLUMN_NAME_SUBREDDIT = "subreddit";
         public static final String COLUMN_NAME_SCORE = "score";
-        public static final String COLUMN_NAME_DATE_SUBMITTED = "date_submitted";
+        public static final String COLUMN_NAME_CREATED_UTC = "created_utc";
+        public static final String COLUMN_NAME_PERMALINK = "permalink";
+        /**
+         * The reddit JSON text of the submission, only stored before version 11 of the database.
+         */
         public static final String COLUMN_NAME_JSON = "json";
+        /**
+         * The submission encoded by {@link SubmissionCodec}.
+         */
+        public static final String COLUMN_NAME_PAYLOAD = "payload";
+        /**
+         * The position of the submission in the user's saved listing, lower is more recent.
+         */
+        public static final String COLUMN_NAME_POSITION = "position";
+    }
+
+    /**
+     * Full-text search index over the submissions, each row's docid is the {@code _ID} of the
+     * indexed submission.
+     */
+    public static abstract class SubmissionSearchEntry {
+        public static final String TABLE_NAME = "submissions_fts";
+        public static final String COLUMN_NAME_DOCID = "docid";
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_SUBREDDIT = "subreddit";
+        public static final String COLUMN_NAME_SELFTEXT = "selftext";
+        public static final String COLUMN_NAME_AUTHOR = "author";
+    }
+
+    /**
+     * Cursors of the listings of the client's history, stored with the submissions they
+     * committed so paging resumes where it stopped.
+     */
+    public static abstract class SyncStateEntry {
+        public static final String TABLE_NAME = "sync_state";
+        public static final String COLUMN_NAME_LISTING = "listing";
+        public static final String COLUMN_NAME_AFTER = "after";
+        public static final String COLUMN_NAME_COMPLETE = "complete";
+        public static final String COLUMN_NAME_PAGE_LIMIT = "page_limit";
+    }
+
+    /**
+     * Number of stored submissions per subreddit, maintained by triggers on the submissions
+     * table.
+     */
+    public static abstract class SubredditEntry {
+        public static final String TABLE_NAME = "subreddits";
+        public static final String COLUMN_NAME_SUBREDDIT = "subreddit";
+        public static final String COLUMN_NAME_COUNT = "submission_count";
     }
 }
@@ -0,0 +1,387 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.util.Arrays;
+
+/**
+ * The SQL of the current version of the submissions database, along with the arguments bound to
+ * its statements.
+ * <p>
+ * It only depends on the contract and the {@link SubmissionCodec}, so every SQLite backed
+ * {@link SubmissionStore} creates, writes and queries the exact same schema, whether it runs on
+ * Android or on the JVM. The stores only bind the arguments through their own SQLite API.
+ */
+final class SubmissionsSchema {
+    private static final String TEXT_TYPE = " TEXT";
+    private static final String INTEGER_TYPE = " INTEGER";
+    private static final String BLOB_TYPE = " BLOB";
+    static final String COMMA_SEP = ",";
+    static final String SQL_CREATE_TASKS_ENTRIES =
+            "CREATE TABLE " + SubmissionsContract.SubmissionEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SubmissionEntry._ID + " INTEGER PRIMARY KEY," +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + TEXT_TYPE + " NOT NULL UNIQUE" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + TEXT_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + INTEGER_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + INTEGER_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PERMALINK + TEXT_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD + BLOB_TYPE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + INTEGER_TYPE + ");";
+    private static final String SQL_CREATE_POSITION_INDEX =
+            createIndex(SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION);
+    /**
+     * Covers both filtering by subreddit and keeping each subreddit's saved order.
+     */
+    private static final String SQL_CREATE_SUBREDDIT_INDEX =
+            createIndex(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT,
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION);
+    private static final String SQL_CREATE_CREATED_UTC_INDEX =
+            createIndex(SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC);
+    /**
+     * Inserts a new entry. The first seven arguments are the {@link #entryArgs}, followed by the
+     * position of the entry.
+     */
+    static final String SQL_INSERT_ENTRY =
+            "INSERT INTO " + SubmissionsContract.SubmissionEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PERMALINK + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+    /**
+     * Updates an existing entry in place, keeping its position so the saved order is preserved.
+     * The arguments are the {@link #entryArgs}.
+     */
+    static final String SQL_UPDATE_ENTRY =
+            "UPDATE " + SubmissionsContract.SubmissionEntry.TABLE_NAME + " SET " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE + " = ?" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + " = ?" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + " = ?" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + " = ?" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PERMALINK + " = ?" + COMMA_SEP +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD + " = ?" +
+                    " WHERE " + SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?;";
+    static final String SQL_SELECT_ENTRY_ID =
+            "SELECT " + SubmissionsContract.SubmissionEntry._ID + " FROM " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " WHERE " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?;";
+    /**
+     * Selects the fullname of the last stored submission in saved order.
+     */
+    static final String SQL_SELECT_LAST_FULLNAME =
+            "SELECT " + SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " FROM " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " ORDER BY " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " DESC LIMIT 1;";
+    static final String SQL_DELETE_TASKS_ENTRIES = "DROP TABLE IF EXISTS " +
+            SubmissionsContract.SubmissionEntry.TABLE_NAME;
+
+    static final String SQL_CREATE_SEARCH_ENTRIES =
+            "CREATE VIRTUAL TABLE " + SubmissionsContract.SubmissionSearchEntry.TABLE_NAME +
+                    " USING fts4(" +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_SUBREDDIT + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_SELFTEXT + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_AUTHOR + ");";
+    /**
+     * Adds or replaces the search entry of a stored entry. The arguments are the
+     * {@link #searchEntryArgs}.
+     */
+    static final String SQL_INDEX_SEARCH_ENTRY =
+            "INSERT OR REPLACE INTO " + SubmissionsContract.SubmissionSearchEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_DOCID + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_SUBREDDIT + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_SELFTEXT + COMMA_SEP +
+                    SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_AUTHOR +
+                    ") VALUES (?, ?, ?, ?, ?);";
+    static final String SQL_DELETE_SEARCH_ENTRIES = "DROP TABLE IF EXISTS " +
+            SubmissionsContract.SubmissionSearchEntry.TABLE_NAME;
+
+    static final String SQL_CREATE_SYNC_STATE_ENTRIES =
+            "CREATE TABLE " + SubmissionsContract.SyncStateEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_LISTING + TEXT_TYPE + " PRIMARY KEY" + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_AFTER + TEXT_TYPE + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE + INTEGER_TYPE + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_PAGE_LIMIT + INTEGER_TYPE + ");";
+    static final String SQL_DELETE_SYNC_STATE_ENTRIES = "DROP TABLE IF EXISTS " +
+            SubmissionsContract.SyncStateEntry.TABLE_NAME;
+    /**
+     * Adds or replaces the sync state of a listing. The arguments are the
+     * {@link #syncStateArgs}.
+     */
+    static final String SQL_REPLACE_SYNC_STATE =
+            "INSERT OR REPLACE INTO " + SubmissionsContract.SyncStateEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_LISTING + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_AFTER + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE + COMMA_SEP +
+                    SubmissionsContract.SyncStateEntry.COLUMN_NAME_PAGE_LIMIT +
+                    ") VALUES (?, ?, ?, ?);";
+    static final String SQL_CREATE_SUBREDDIT_ENTRIES =
+            "CREATE TABLE " + SubmissionsContract.SubredditEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT + TEXT_TYPE + " PRIMARY KEY" + COMMA_SEP +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + INTEGER_TYPE + " NOT NULL);";
+    static final String SQL_DELETE_SUBREDDIT_ENTRIES = "DROP TABLE IF EXISTS " +
+            SubmissionsContract.SubredditEntry.TABLE_NAME;
+    private static final String SQL_INCREMENT_SUBREDDIT =
+            "INSERT OR IGNORE INTO " + SubmissionsContract.SubredditEntry.TABLE_NAME + " (" +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT + COMMA_SEP +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT +
+                    ") SELECT NEW.subreddit, 0 WHERE NEW.subreddit IS NOT NULL; " +
+                    "UPDATE " + SubmissionsContract.SubredditEntry.TABLE_NAME + " SET " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " = " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " + 1 WHERE " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT + " = NEW.subreddit; ";
+    private static final String SQL_DECREMENT_SUBREDDIT =
+            "UPDATE " + SubmissionsContract.SubredditEntry.TABLE_NAME + " SET " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " = " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " - 1 WHERE " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT + " = OLD.subreddit; " +
+                    "DELETE FROM " + SubmissionsContract.SubredditEntry.TABLE_NAME + " WHERE " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT + " = OLD.subreddit AND " +
+                    SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " <= 0; ";
+    /**
+     * Triggers keeping the subreddit counts in step with every insert, delete and subreddit
+     * change of the submissions table, whichever code path writes it.
+     */
+    private static final String[] SQL_CREATE_SUBREDDIT_TRIGGERS = {
+            "CREATE TRIGGER submissions_subreddit_insert AFTER INSERT ON " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " BEGIN " +
+                    SQL_INCREMENT_SUBREDDIT + "END;",
+            "CREATE TRIGGER submissions_subreddit_delete AFTER DELETE ON " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " BEGIN " +
+                    SQL_DECREMENT_SUBREDDIT + "END;",
+            "CREATE TRIGGER submissions_subreddit_update AFTER UPDATE OF " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + " ON " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME +
+                    " WHEN OLD.subreddit IS NOT NEW.subreddit BEGIN " +
+                    SQL_DECREMENT_SUBREDDIT + SQL_INCREMENT_SUBREDDIT + "END;"};
+
+    /**
+     * The sync state of the background walk of the saved history.
+     */
+    static final String HISTORY_LISTING = "saved";
+    /**
+     * The sync state of the saved pages downloaded on demand.
+     */
+    static final String PAGES_LISTING = "saved_pages";
+
+    static final String[] SUMMARY_PROJECTION = {
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME,
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_TITLE,
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT,
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE,
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC,
+            SubmissionsContract.SubmissionEntry.COLUMN_NAME_PERMALINK};
+
+    /**
+     * Creates every table, index and trigger of the submissions database, in order.
+     */
+    static final String[] SQL_CREATE_ENTRIES = concat(new String[]{SQL_CREATE_TASKS_ENTRIES,
+            SQL_CREATE_POSITION_INDEX, SQL_CREATE_SUBREDDIT_INDEX, SQL_CREATE_CREATED_UTC_INDEX,
+            SQL_CREATE_SEARCH_ENTRIES, SQL_CREATE_SYNC_STATE_ENTRIES,
+            SQL_CREATE_SUBREDDIT_ENTRIES}, SQL_CREATE_SUBREDDIT_TRIGGERS);
+    /**
+     * Drops every table of the submissions database, along with their indexes and triggers.
+     */
+    static final String[] SQL_DELETE_ENTRIES = {SQL_DELETE_TASKS_ENTRIES,
+            SQL_DELETE_SEARCH_ENTRIES, SQL_DELETE_SYNC_STATE_ENTRIES, SQL_DELETE_SUBREDDIT_ENTRIES};
+
+    private SubmissionsSchema() {
+    }
+
+    /**
+     * Builds the statement used to create an index on the given columns of the submissions table.
+     * The index is named after its first column.
+     *
+     * @param columns the columns to index
+     * @return the statement used to create the index
+     */
+    private static String createIndex(String... columns) {
+        return "CREATE INDEX " + SubmissionsContract.SubmissionEntry.TABLE_NAME + "_" +
+                columns[0] + "_idx ON " + SubmissionsContract.SubmissionEntry.TABLE_NAME + " (" +
+                join(COMMA_SEP, columns) + ");";
+    }
+
+    /**
+     * Builds the query getting the stored position that a list of submissions is written from.
+     *
+     * @param newest true if the submissions are written in front of the stored submissions
+     * @return the query selecting the lowest stored position if {@code newest} is true, the
+     * highest otherwise, 0 if nothing is stored
+     */
+    static String positionQuery(boolean newest) {
+        return "SELECT IFNULL(" + (newest ? "MIN" : "MAX") + "(" +
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + "), 0) FROM " +
+                SubmissionsContract.SubmissionEntry.TABLE_NAME;
+    }
+
+    /**
+     * Gets the position of the first of a list of submissions written in front of or after the
+     * stored submissions. Every following submission takes the next position, so the list keeps
+     * its order.
+     *
+     * @param stored the position selected by {@link #positionQuery}
+     * @param count  the number of submissions written
+     * @param newest true if the submissions are written in front of the stored submissions
+     * @return the position of the first submission
+     */
+    static long firstPosition(long stored, int count, boolean newest) {
+        return newest ? stored - count : stored + 1;
+    }
+
+    /**
+     * Gets the arguments of {@link #SQL_UPDATE_ENTRY}, and the first arguments of
+     * {@link #SQL_INSERT_ENTRY}, for the given {@code Submission}.
+     *
+     * @param submission the {@code Submission} to write
+     * @return the title, subreddit, score, creation time in seconds, permalink, payload and
+     * fullname of the {@code Submission}
+     */
+    static Object[] entryArgs(Submission submission) {
+        Integer score = submission.getScore();
+        return new Object[]{submission.getTitle(), submission.getSubredditName(),
+                score == null ? null : (long) score,
+                submission.getCreated().getTime() / 1000, submission.getPermalink(),
+                SubmissionCodec.encode(submission), submission.getFullName()};
+    }
+
+    /**
+     * Gets the arguments of {@link #SQL_INDEX_SEARCH_ENTRY} for the given {@code Submission}.
+     *
+     * @param id         the row id of the stored {@code Submission}
+     * @param submission the {@code Submission} to index
+     * @return the row id, title, subreddit, self text and author of the {@code Submission}
+     */
+    static Object[] searchEntryArgs(long id, Submission submission) {
+        return new Object[]{id, submission.getTitle(), submission.getSubredditName(),
+                submission.getSelftext(), submission.getAuthor()};
+    }
+
+    /**
+     * Gets the arguments of {@link #SQL_REPLACE_SYNC_STATE} for the given listing.
+     *
+     * @param listing the listing to store the state of
+     * @param after   the fullname the listing continues after, null if the listing ended
+     * @param limit   the number of submissions requested per page of the listing
+     * @return the listing, cursor, completion and page limit of the sync state
+     */
+    static Object[] syncStateArgs(String listing, String after, int limit) {
+        return new Object[]{listing, after, after == null ? 1 : 0, limit};
+    }
+
+    /**
+     * Builds the query getting the given column of a listing's sync state. The query takes the
+     * listing as its argument.
+     *
+     * @param column the column to get
+     * @return the query selecting the column
+     */
+    static String syncStateQuery(String column) {
+        return "SELECT " + column + " FROM " + SubmissionsContract.SyncStateEntry.TABLE_NAME +
+                " WHERE " + SubmissionsContract.SyncStateEntry.COLUMN_NAME_LISTING + " = ?";
+    }
+
+    /**
+     * Builds the query getting the stored submission counts of the given number of subreddits.
+     * The query takes the subreddits as its arguments.
+     *
+     * @param subreddits the number of subreddits to count, 0 to count every subreddit
+     * @return the query selecting the subreddit and count of the stored subreddits
+     */
+    static String subredditCountsQuery(int subreddits) {
+        String sql = "SELECT " + SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT +
+                COMMA_SEP + SubmissionsContract.SubredditEntry.COLUMN_NAME_COUNT + " FROM " +
+                SubmissionsContract.SubredditEntry.TABLE_NAME;
+        if (subreddits == 0) return sql;
+        String[] placeholders = new String[subreddits];
+        Arrays.fill(placeholders, "?");
+        return sql + " WHERE " + SubmissionsContract.SubredditEntry.COLUMN_NAME_SUBREDDIT +
+                " IN (" + join(COMMA_SEP, placeholders) + ")";
+    }
+
+    /**
+     * Builds the query searching the full-text index, ranking submissions with more matches
+     * first and keeping the saved order for ties.
+     * <p>
+     * The query takes the MATCH expression as its first argument, followed by the subreddit if
+     * it filters by subreddit.
+     *
+     * @param bySubreddit true if the query filters by subreddit
+     * @param limit       the maximum number of rows to return
+     * @return the query selecting the {@link #SUMMARY_PROJECTION} of matching submissions
+     */
+    static String searchQuery(boolean bySubreddit, int limit) {
+        String entries = SubmissionsContract.SubmissionEntry.TABLE_NAME;
+        String search = SubmissionsContract.SubmissionSearchEntry.TABLE_NAME;
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < SUMMARY_PROJECTION.length; i++) {
+            if (i > 0) sql.append(COMMA_SEP);
+            sql.append(entries).append('.').append(SUMMARY_PROJECTION[i]);
+        }
+        sql.append(" FROM ").append(search).append(" JOIN ").append(entries).append(" ON ")
+                .append(entries).append('.').append(SubmissionsContract.SubmissionEntry._ID)
+                .append(" = ").append(search).append('.')
+                .append(SubmissionsContract.SubmissionSearchEntry.COLUMN_NAME_DOCID)
+                .append(" WHERE ").append(search).append(" MATCH ?");
+        if (bySubreddit) {
+            sql.append(" AND ").append(entries).append('.')
+                    .append(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT)
+                    .append(" = ?");
+        }
+        sql.append(" ORDER BY length(offsets(").append(search).append(")) DESC, ")
+                .append(entries).append('.')
+                .append(SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION)
+                .append(" ASC LIMIT ").append(limit);
+        return sql.toString();
+    }
+
+    /**
+     * Converts the given user query into a full-text MATCH expression that matches every word of
+     * the query as a prefix.
+     * <p>
+     * The query is split into words the way the index's simple tokenizer splits the indexed text,
+     * on anything but letters and digits, so {@code foo_bar} is searched for as the words
+     * {@code foo} and {@code bar} it was indexed as. This also drops every character with a
+     * meaning in the MATCH syntax, so user input can never form an invalid expression.
+     *
+     * @param query the user query to convert
+     * @return the MATCH expression, empty if the query has no words
+     */
+    static String toMatchExpression(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : query.replaceAll("[^\\p{L}\\p{N}]+", " ").trim().split(" ")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Joins the given parts with the given separator.
+     *
+     * @param separator the separator to put between the parts
+     * @param parts     the parts to join
+     * @return the joined parts
+     */
+    static String join(String separator, String... parts) {
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) {
+            if (joined.length() > 0) joined.append(separator);
+            joined.append(part);
+        }
+        return joined.toString();
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
@@ -4,13 +4,35 @@ import net.dean.jraw.RedditClient;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.paginators.GenericPaginator;
 
+import java.util.Map;
+
 public class UserHistoryPaginator extends GenericPaginator {
     private String username;
+    /**
+     * The fullname the first page starts after, null to start at the beginning of the listing.
+     */
+    private String startAfter;
 
     public UserHistoryPaginator(RedditClient creator, String where,
                                 String username) {
+        this(creator, where, username, null);
+    }
+
+    /**
+     * Constructor for a {@code UserHistoryPaginator} resuming the listing after the given
+     * fullname.
+     *
+     * @param creator    the client used to download the listing
+     * @param where      the history listing to paginate
+     * @param username   the user whose history is paginated
+     * @param startAfter the fullname the first page starts after, null to start at the
+     *                   beginning of the listing
+     */
+    public UserHistoryPaginator(RedditClient creator, String where,
+                                String username, String startAfter) {
         super(creator, Submission.class, where);
         this.username = username;
+        this.startAfter = startAfter;
         setLimit(RECOMMENDED_MAX_LIMIT);
     }
 
@@ -23,4 +45,11 @@ public class UserHistoryPaginator extends GenericPaginator {
     public String[] getWhereValues() {
         return new String[]{"saved"};
     }
-}
\ No newline at end of file
+
+    @Override
+    protected Map<String, String> getExtraQueryArgs() {
+        Map<String, String> args = super.getExtraQueryArgs();
+        if (getCurrentListing() == null && startAfter != null) args.put("after", startAfter);
+        return args;
+    }
+}
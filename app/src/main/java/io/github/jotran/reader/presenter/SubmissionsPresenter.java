@@ -2,31 +2,61 @@ package io.github.jotran.reader.presenter;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.support.annotation.NonNull;
 import android.util.Log;
 
 import net.dean.jraw.models.Submission;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import io.github.jotran.reader.model.DataManager;
+import io.github.jotran.reader.model.SubmissionSummary;
 import io.github.jotran.reader.view.activity.MainActivity;
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscriber;
+import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
 
 public class SubmissionsPresenter extends BasePresenter {
+    /**
+     * The time in milliseconds a query must stay unchanged before it is searched for.
+     */
+    public static final long SEARCH_DEBOUNCE_MS = 300;
+    /**
+     * The default number of rows left below the last visible row at which the next page is
+     * prefetched.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 10;
     private SubmissionsView mView;
+    private int mPrefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    /**
+     * Whether a next page is in flight, either downloaded or prefetched, only accessed on the
+     * main thread.
+     */
+    private boolean mDownloadingNext;
+    /**
+     * Whether the list shows search results rather than the saved pages, only accessed on the
+     * main thread. No next page is prefetched below search results.
+     */
+    private boolean mShowingSearch;
 
     public interface SubmissionsView {
         void showAuthenticated();
 
         void showLogin();
 
-        void showSubmission(Submission submission);
+        void showSubmissions(List<SubmissionSummary> submissions);
 
-        void showSubreddits(Collection<String> subreddits);
+        void showNewSubmissions(List<SubmissionSummary> submissions);
+
+        void clearSubmissions();
+
+        void openSubmission(Submission submission);
+
+        void showSubreddits(Map<String, Integer> subreddits);
 
         void showProgressIndicator(boolean show);
 
@@ -53,8 +83,6 @@ public class SubmissionsPresenter extends BasePresenter {
             mView.showAuthenticated();
             return;
         }
-        // Always clear data when first authenticating.
-        mDataManager.clear();
         SharedPreferences prefs = mContext.getSharedPreferences(MainActivity.PREFS_NAME, 0);
         if(prefs == null) {
             mView.showLogin();
@@ -102,99 +130,208 @@ public class SubmissionsPresenter extends BasePresenter {
 
     /**
      * Refreshes the current list of saved submissions.
+     * <p>
+     * Only the submissions saved since the last refresh are downloaded, the stored submissions
+     * are kept.
      *
      * @param subreddit the subreddit used to filter the list of saved submissions
      */
     public void refreshSubmissions(String subreddit) {
-        mDataManager.clear();
-        downloadSubmissions(subreddit);
+        mShowingSearch = false;
+        showSubmissions(mDataManager.syncSubmissions()
+                .flatMap(newSubmissions -> mDataManager.downloadSubmissions(subreddit)),
+                new RevalidatingSubscriber());
     }
 
     /**
      * Downloads the first page of saved submissions, filtering the submissions by the given
      * subreddit.
+     * <p>
+     * The stored first page is shown right away, submissions saved since it was last revalidated
+     * are shown in front of it once they are downloaded.
      *
      * @param subreddit the subreddit to filter the submissions by, use null to not filter
      *                  submissions
      */
     public void downloadSubmissions(String subreddit) {
+        mShowingSearch = false;
+        showSubmissions(mDataManager.downloadSubmissions(subreddit), new RevalidatingSubscriber());
+    }
+
+    /**
+     * Shows the submissions emitted by the given observable one page at a time.
+     * <p>
+     * Empty pages are dropped before the pages reach the main thread, so the main thread only
+     * ever receives pages that are ready to be shown.
+     *
+     * @param observable the observable emitting the lists of submissions to show
+     * @param subscriber the subscriber showing the lists of submissions
+     */
+    private void showSubmissions(Observable<List<SubmissionSummary>> observable,
+                                 Subscriber<List<SubmissionSummary>> subscriber) {
         mView.showProgressIndicator(true);
-        mDataManager.downloadSubmissions()
+        observable
                 .subscribeOn(Schedulers.io())
+                .filter(submissions -> !submissions.isEmpty())
                 .observeOn(AndroidSchedulers.mainThread())
-                .doOnNext(submissions -> {
-                    if (subreddit == null) downloadSubreddits();
-                })
-                .flatMap(Observable::from)
-                .filter(submission -> subredditMatched(subreddit, submission))
-                .subscribe(new SubmissionSubscriber());
+                .subscribe(subscriber);
     }
 
     /**
      * Downloads the next page of saved submissions, filtering the submissions by the given
      * subreddit.
+     * <p>
+     * Nothing is downloaded while a next page is already in flight, so a page that is prefetched
+     * at the same time is only shown once.
      *
      * @param subreddit the subreddit to filter by, use null to not filter submissions
      */
     public void downloadNextSubmissions(String subreddit) {
+        if (mDownloadingNext || mShowingSearch) return;
         mView.showProgressIndicator(true);
-        mDataManager.downloadNextSubmissions()
+        downloadNext(subreddit).subscribe(new SubmissionSubscriber());
+    }
+
+    /**
+     * Sets the number of rows left below the last visible row at which the next page is
+     * prefetched.
+     *
+     * @param distance the prefetch distance in rows, 0 to only prefetch once the last row is
+     *                 visible
+     */
+    public void setPrefetchDistance(int distance) {
+        mPrefetchDistance = distance;
+    }
+
+    /**
+     * Prefetches the next page of saved submissions once the user has scrolled within the
+     * prefetch distance of the end of the list.
+     * <p>
+     * At most one next page is in flight at a time, whether it was prefetched or downloaded on
+     * request. The prefetched page is appended below the
+     * rows already shown without a progress indicator, so by the time the user reaches the old
+     * end of the list the next page is already there. Nothing is prefetched while search results
+     * are shown, until the saved submissions are downloaded again.
+     *
+     * @param subreddit           the subreddit to filter by, use null to not filter submissions
+     * @param lastVisiblePosition the position of the last visible row
+     * @param itemCount           the number of rows in the list
+     */
+    public void prefetchNextSubmissions(String subreddit, int lastVisiblePosition,
+                                        int itemCount) {
+        if (mDownloadingNext || mShowingSearch
+                || itemCount - 1 - lastVisiblePosition > mPrefetchDistance) return;
+        downloadNext(subreddit).subscribe(mView::showSubmissions,
+                e -> Log.e("Presenter Error", "Submission Prefetch", e));
+    }
+
+    /**
+     * Gets the observable used for downloading the next page of saved submissions onto the main
+     * thread, marking the next page as in flight until it terminates.
+     *
+     * @param subreddit the subreddit to filter by, use null to not filter submissions
+     * @return the observable emitting the next page, if it is not empty
+     */
+    private Observable<List<SubmissionSummary>> downloadNext(String subreddit) {
+        mDownloadingNext = true;
+        return mDataManager.downloadNextSubmissions(subreddit)
                 .subscribeOn(Schedulers.io())
+                .filter(submissions -> !submissions.isEmpty())
                 .observeOn(AndroidSchedulers.mainThread())
-                .doOnNext(submissions -> {
-                    if (subreddit == null) downloadSubreddits();
-                })
-                .flatMap(Observable::from)
-                .filter(submission -> subredditMatched(subreddit, submission))
-                .subscribe(new SubmissionSubscriber());
+                .doOnTerminate(() -> mDownloadingNext = false);
     }
 
     /**
-     * Determines if the given submission belongs to the given subreddit.
+     * Shows the subreddits of the stored submissions with their submission counts, showing them
+     * again whenever stored submissions are added or removed.
+     * <p>
+     * The subreddits are read once, afterwards only the subreddits changed by a write are read,
+     * so pages and syncs no longer rebuild the set of subreddits.
      *
-     * @param subreddit  the targeted subreddit, a null subreddit always results in a match
-     * @param submission the submission to check
-     * @return true if the submission belongs to the subreddit
+     * @return the subscription of the watch, unsubscribe from it once the subreddits are no
+     * longer shown
      */
-    private boolean subredditMatched(String subreddit, Submission submission) {
-        return subreddit == null || submission.getSubredditName().equals(subreddit);
+    public Subscription watchSubreddits() {
+        return mDataManager.watchSubreddits()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(mView::showSubreddits,
+                        e -> Log.e("Presenter Error", "Subreddit Watch", e));
     }
 
     /**
-     * Downloads the set of subreddits belonging to the current list of submissions.
+     * Searches the stored submissions as the user types, showing the results of the latest query
+     * only.
+     * <p>
+     * A query is only searched for once it has settled for {@link #SEARCH_DEBOUNCE_MS}. Whenever
+     * a new query is searched for, the list is cleared and the search of the previous query is
+     * cancelled, so results of stale queries never reach the view. A failed query is reported
+     * without ending the search.
+     *
+     * @param subreddit the targeted subreddit, a null subreddit always results in a match
+     * @param queries   the text of the search input, emitted on every change
+     * @return the subscription of the search, unsubscribe from it once the search is closed
      */
-    private void downloadSubreddits() {
-        mDataManager.downloadSubreddits()
-                .subscribe(subreddits -> mView.showSubreddits(subreddits));
+    public Subscription searchSubmissions(String subreddit, Observable<String> queries) {
+        return searchSubmissions(subreddit, queries, Schedulers.computation());
     }
 
     /**
-     * Searches the list of downloaded submissions for submissions that matches the given
-     * subreddit and submission title.
+     * Searches the stored submissions as the user types, debouncing the queries on the given
+     * scheduler.
      *
      * @param subreddit the targeted subreddit, a null subreddit always results in a match
-     * @param title     the submission title to match
+     * @param queries   the text of the search input, emitted on every change
+     * @param scheduler the scheduler used to time the debounce
+     * @return the subscription of the search
      */
-    public void searchSubmissions(String subreddit, @NonNull String title) {
-        mView.showProgressIndicator(true);
-        mDataManager.downloadSubmissions()
+    Subscription searchSubmissions(String subreddit, Observable<String> queries,
+                                   Scheduler scheduler) {
+        return queries.debounce(SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS, scheduler)
+                .map(String::trim)
+                .distinctUntilChanged()
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnNext(query -> {
+                    mShowingSearch = true;
+                    mView.clearSubmissions();
+                    mView.showProgressIndicator(true);
+                })
+                .switchMap(query -> mDataManager.searchSubmissions(subreddit, query)
+                        .subscribeOn(Schedulers.io())
+                        .filter(submissions -> !submissions.isEmpty())
+                        .observeOn(AndroidSchedulers.mainThread())
+                        .doOnTerminate(() -> mView.showProgressIndicator(false))
+                        .onErrorResumeNext(e -> {
+                            mView.showError(new Exception("Searching submissions failed."));
+                            Log.e("Presenter Error", "Submission Search", e);
+                            return Observable.empty();
+                        }))
+                .subscribe(mView::showSubmissions, e -> Log.e("Presenter Error", "Search", e));
+    }
+
+    /**
+     * Opens the full submission behind the given summary.
+     *
+     * @param submission the summary of the submission to open
+     */
+    public void openSubmission(SubmissionSummary submission) {
+        mDataManager.downloadSubmission(submission.getFullName())
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .flatMap(Observable::from)
-                .filter(submission -> submission.getTitle().toLowerCase()
-                        .contains(title.toLowerCase())
-                        && (subredditMatched(subreddit, submission)))
-                .subscribe(new SubmissionSubscriber());
+                .subscribe(mView::openSubmission, e -> {
+                    mView.showError(new Exception("Opening submission failed."));
+                    Log.e("Presenter Error", "Submission Open", e);
+                });
     }
 
     /**
      * Subscriber used to subscribe to a list of submissions.
      */
-    private class SubmissionSubscriber extends Subscriber<Submission> {
+    private class SubmissionSubscriber extends Subscriber<List<SubmissionSummary>> {
 
         @Override
-        public void onNext(Submission submission) {
-            mView.showSubmission(submission);
+        public void onNext(List<SubmissionSummary> submissions) {
+            mView.showSubmissions(submissions);
         }
 
         @Override
@@ -209,4 +346,31 @@ public class SubmissionsPresenter extends BasePresenter {
             Log.e("Presenter Error", "Submission Download", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Subscriber used to subscribe to a first page of submissions followed by the lists of
+     * submissions saved since, which are shown in front of the first page.
+     * <p>
+     * The progress indicator is hidden as soon as the first page is shown, the newer submissions
+     * are added quietly.
+     */
+    private class RevalidatingSubscriber extends SubmissionSubscriber {
+        private boolean mFirstShown;
+
+        @Override
+        public void onNext(List<SubmissionSummary> submissions) {
+            if (mFirstShown) {
+                mView.showNewSubmissions(submissions);
+                return;
+            }
+            mFirstShown = true;
+            super.onNext(submissions);
+            mView.showProgressIndicator(false);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (!mFirstShown) super.onCompleted();
+        }
+    }
+}
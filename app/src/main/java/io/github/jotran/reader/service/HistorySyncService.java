@@ -0,0 +1,88 @@
+package io.github.jotran.reader.service;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.github.jotran.reader.model.DataManager;
+
+/**
+ * Background service walking the client's whole saved history into the stored database, so
+ * every saved submission is available offline and searchable.
+ * <p>
+ * Progress is reported through local broadcasts of {@link #ACTION_SYNC_PROGRESS}.
+ */
+public class HistorySyncService extends IntentService {
+    public static final String ACTION_SYNC_PROGRESS =
+            "io.github.jotran.reader.action.SYNC_PROGRESS";
+    /**
+     * The number of submissions stored so far by the running walk.
+     */
+    public static final String EXTRA_SYNCED = "io.github.jotran.reader.extra.SYNCED";
+    /**
+     * True once the walk has stopped, either completed or failed.
+     */
+    public static final String EXTRA_FINISHED = "io.github.jotran.reader.extra.FINISHED";
+    /**
+     * Whether a walk is queued or running in this process, so starting the service again does
+     * not queue another walk behind it.
+     */
+    private static final AtomicBoolean mWalkQueued = new AtomicBoolean();
+
+    public HistorySyncService() {
+        super("HistorySyncService");
+    }
+
+    /**
+     * Starts walking the saved history in the background, unless a walk is already queued or
+     * running. Once a walk has reached the end of the listing, the service does nothing.
+     *
+     * @param context the context used to start the service
+     */
+    public static void start(Context context) {
+        if (!mWalkQueued.compareAndSet(false, true)) return;
+        context.startService(new Intent(context, HistorySyncService.class));
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        try {
+            DataManager dataManager = new DataManager(this);
+            if (!dataManager.isHistorySynced()) syncHistory(dataManager);
+        } finally {
+            mWalkQueued.set(false);
+        }
+    }
+
+    /**
+     * Syncs the newest saved submissions, then walks the rest of the saved history.
+     *
+     * @param dataManager the data manager used to sync the saved history
+     */
+    private void syncHistory(DataManager dataManager) {
+        int[] synced = {0};
+        dataManager.syncSubmissions()
+                .ignoreElements()
+                .cast(Integer.class)
+                .concatWith(dataManager.syncHistory())
+                .toBlocking()
+                .subscribe(count -> {
+                    synced[0] = count;
+                    reportProgress(count, false);
+                }, e -> {
+                    Log.e("Sync Error", "History Sync", e);
+                    reportProgress(synced[0], true);
+                }, () -> reportProgress(synced[0], true));
+    }
+
+    private void reportProgress(int synced, boolean finished) {
+        Intent progress = new Intent(ACTION_SYNC_PROGRESS)
+                .putExtra(EXTRA_SYNCED, synced)
+                .putExtra(EXTRA_FINISHED, finished);
+        LocalBroadcastManager.getInstance(this).sendBroadcast(progress);
+    }
+}
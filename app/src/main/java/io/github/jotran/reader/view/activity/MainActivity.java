@@ -20,7 +20,9 @@ import android.view.SubMenu;
 import android.view.View;
 import android.widget.TextView;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import io.github.jotran.reader.R;
 import io.github.jotran.reader.view.fragment.SubmissionsFragment;
@@ -36,6 +38,11 @@ public class MainActivity extends AppCompatActivity {
      * The group used to identify menu items representing subreddits.
      */
     private final int SUBREDDIT_MENU_GRP = 1;
+    /**
+     * The subreddits shown in the navigation drawer, in menu order. The menu item of a subreddit
+     * has its index offset by {@code Menu.FIRST} as its id.
+     */
+    private final List<String> mNavSubreddits = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -106,25 +113,39 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Setups the navigation drawer's menu to include the given collection of subreddits.
-     * The subreddit portion of this menu is rebuilt each time.
+     * Setups the navigation drawer's menu to include the given subreddits with their number of
+     * submissions.
+     * The subreddit portion of this menu is only rebuilt when the subreddits themselves change,
+     * when only their counts change the titles of the existing items are updated.
      *
-     * @param subreddits the collection of subreddits to add to the menu
+     * @param subreddits the number of submissions of every subreddit to add to the menu
      */
-    private void setupNavMenu(Collection<String> subreddits) {
+    private void setupNavMenu(Map<String, Integer> subreddits) {
         NavigationView mNavView = (NavigationView) findViewById(R.id.nav_view);
-        if (subreddits.isEmpty() || mNavView == null) return;
+        if (mNavView == null) return;
         Menu menu = mNavView.getMenu();
-        menu.removeGroup(SUBREDDIT_MENU_GRP);
-        SubMenu subMenu = menu.addSubMenu(SUBREDDIT_MENU_GRP, Menu.NONE, Menu.NONE, "Subreddit");
-        for (String subreddit : subreddits) {
-            subMenu.add(SUBREDDIT_MENU_GRP, Menu.NONE, Menu.NONE, subreddit);
+        List<String> names = new ArrayList<>(subreddits.keySet());
+        if (!names.equals(mNavSubreddits)) {
+            menu.removeGroup(SUBREDDIT_MENU_GRP);
+            mNavSubreddits.clear();
+            if (names.isEmpty()) return;
+            SubMenu subMenu = menu.addSubMenu(SUBREDDIT_MENU_GRP, Menu.NONE, Menu.NONE,
+                    "Subreddit");
+            for (int i = 0; i < names.size(); i++) {
+                subMenu.add(SUBREDDIT_MENU_GRP, Menu.FIRST + i, Menu.NONE, "");
+            }
+            subMenu.setGroupCheckable(SUBREDDIT_MENU_GRP, true, true);
+            mNavSubreddits.addAll(names);
+            mNavView.setNavigationItemSelectedListener(item -> {
+                selectNavItem(item);
+                return true;
+            });
+        }
+        for (int i = 0; i < names.size(); i++) {
+            MenuItem item = menu.findItem(Menu.FIRST + i);
+            if (item != null) item.setTitle(getString(R.string.nav_subreddit, names.get(i),
+                    subreddits.get(names.get(i))));
         }
-        subMenu.setGroupCheckable(SUBREDDIT_MENU_GRP, true, true);
-        mNavView.setNavigationItemSelectedListener(item -> {
-            selectNavItem(item);
-            return true;
-        });
     }
 
     /*
@@ -136,7 +157,7 @@ public class MainActivity extends AppCompatActivity {
         if (item.getItemId() == R.id.nav_all_fragment)
             setSubFragment(null);
         else if (item.getGroupId() == SUBREDDIT_MENU_GRP) {
-            setSubFragment(item.getTitle().toString());
+            setSubFragment(mNavSubreddits.get(item.getItemId() - Menu.FIRST));
         }
         item.setChecked(true);
         DrawerLayout mDrawer = (DrawerLayout) findViewById(R.id.drawer_layout);
@@ -6,22 +6,21 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import net.dean.jraw.models.Submission;
-
 import java.util.List;
 
 import io.github.jotran.reader.R;
+import io.github.jotran.reader.model.SubmissionSummary;
 
 public class SubmissionsRecyclerAdapter extends
         RecyclerView.Adapter<SubmissionsRecyclerAdapter.ViewHolder> {
-    private List<Submission> mSubmissions;
+    private List<SubmissionSummary> mSubmissions;
     private SubmissionsAdapterListener mListener;
 
     public interface SubmissionsAdapterListener {
-        void onSubmissionClicked(Submission submission);
+        void onSubmissionClicked(SubmissionSummary submission);
     }
 
-    public SubmissionsRecyclerAdapter(List<Submission> submissions) {
+    public SubmissionsRecyclerAdapter(List<SubmissionSummary> submissions) {
         mSubmissions = submissions;
     }
 
@@ -53,10 +52,10 @@ public class SubmissionsRecyclerAdapter extends
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        Submission submission = mSubmissions.get(position);
+        SubmissionSummary submission = mSubmissions.get(position);
         holder.mTitleTv.setText(submission.getTitle());
         holder.mDateTv.setText(submission.getCreated().toString());
-        holder.mScoreTv.setText(submission.getScore().toString());
+        holder.mScoreTv.setText(String.valueOf(submission.getScore()));
     }
 
     @Override
@@ -74,20 +73,38 @@ public class SubmissionsRecyclerAdapter extends
     }
 
     /**
-     * Add the given {@code Submission} to the current list of {@code Submission}s.
+     * Add the given page of {@code Submission}s to the end of the current list of
+     * {@code Submission}s.
+     * <p>
+     * The page is announced as a single range insert, so the whole page costs one layout pass.
+     *
+     * @param submissions the page of submissions to add
+     */
+    public void addSubmissions(List<SubmissionSummary> submissions) {
+        if (submissions.isEmpty()) return;
+        int start = mSubmissions.size();
+        mSubmissions.addAll(submissions);
+        notifyItemRangeInserted(start, submissions.size());
+    }
+
+    /**
+     * Add the given {@code Submission}s in front of the current list of {@code Submission}s.
      *
-     * @param submission the submission to add
+     * @param submissions the submissions to add, in saved order
      */
-    public void addSubmissions(Submission submission) {
-        mSubmissions.add(submission);
-        notifyDataSetChanged();
+    public void addNewSubmissions(List<SubmissionSummary> submissions) {
+        if (submissions.isEmpty()) return;
+        mSubmissions.addAll(0, submissions);
+        notifyItemRangeInserted(0, submissions.size());
     }
 
     /**
      * Clears the current list of {@code Submission}s.
      */
     public void clear(){
+        int count = mSubmissions.size();
+        if (count == 0) return;
         mSubmissions.clear();
-        notifyDataSetChanged();
+        notifyItemRangeRemoved(0, count);
     }
 }
@@ -10,6 +10,8 @@ import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -22,13 +24,18 @@ import android.widget.ProgressBar;
 import net.dean.jraw.models.Submission;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import io.github.jotran.reader.R;
+import io.github.jotran.reader.model.SubmissionSummary;
 import io.github.jotran.reader.presenter.SubmissionsPresenter;
+import io.github.jotran.reader.service.HistorySyncService;
 import io.github.jotran.reader.view.activity.LoginActivity;
 import io.github.jotran.reader.view.activity.MainActivity;
 import io.github.jotran.reader.view.adapter.SubmissionsRecyclerAdapter;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
 
 public class SubmissionsFragment extends Fragment implements
         SubmissionsPresenter.SubmissionsView {
@@ -39,9 +46,11 @@ public class SubmissionsFragment extends Fragment implements
     private SubmissionsPresenter mPresenter;
     private SubmissionsFragmentListener mListener;
     private String mSubreddit;
+    private Subscription mSearchSubscription;
+    private Subscription mSubredditsSubscription;
 
     public interface SubmissionsFragmentListener {
-        void onSubmissionsLoaded(Collection<String> subreddits);
+        void onSubredditsLoaded(Map<String, Integer> subreddits);
     }
 
     public SubmissionsFragment() {
@@ -76,21 +85,17 @@ public class SubmissionsFragment extends Fragment implements
                 LinearLayoutManager.VERTICAL, false);
         mRecyclerView.setLayoutManager(layoutManager);
         mAdapter = new SubmissionsRecyclerAdapter(new ArrayList<>());
-        mAdapter.setSubmissionsListener(this::loadSubmission);
+        mAdapter.setSubmissionsListener(mPresenter::openSubmission);
         mRecyclerView.setAdapter(mAdapter);
         mRecyclerView.setVisibility(View.VISIBLE);
         mRecyclerView.setOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || mProgressBar.isShown()) return;
                 LinearLayoutManager lm = (LinearLayoutManager)
                         recyclerView.getLayoutManager();
-                int totalItems = lm.getItemCount();
-                int pastVisibleItems = lm.findFirstVisibleItemPosition();
-                int visibleItems = recyclerView.getChildCount();
-                boolean bottomReached = totalItems <=
-                        (visibleItems + pastVisibleItems);
-                if (bottomReached && !mProgressBar.isShown())
-                    mPresenter.downloadNextSubmissions(mSubreddit);
+                mPresenter.prefetchNextSubmissions(mSubreddit,
+                        lm.findLastVisibleItemPosition(), lm.getItemCount());
             }
         });
 
@@ -127,6 +132,9 @@ public class SubmissionsFragment extends Fragment implements
     @Override
     public void showAuthenticated() {
         mPresenter.downloadSubmissions(mSubreddit);
+        if (mSubreddit == null && mSubredditsSubscription == null)
+            mSubredditsSubscription = mPresenter.watchSubreddits();
+        HistorySyncService.start(getContext());
     }
 
     @Override
@@ -138,15 +146,21 @@ public class SubmissionsFragment extends Fragment implements
     }
 
     @Override
-    public void showSubmission(Submission submission) {
+    public void showSubmissions(List<SubmissionSummary> submissions) {
         if (mAdapter != null)
-            mAdapter.addSubmissions(submission);
+            mAdapter.addSubmissions(submissions);
     }
 
     @Override
-    public void showSubreddits(Collection<String> subreddits) {
+    public void showNewSubmissions(List<SubmissionSummary> submissions) {
+        if (mAdapter != null)
+            mAdapter.addNewSubmissions(submissions);
+    }
+
+    @Override
+    public void showSubreddits(Map<String, Integer> subreddits) {
         if (mListener != null)
-            mListener.onSubmissionsLoaded(subreddits);
+            mListener.onSubredditsLoaded(subreddits);
     }
 
     @Override
@@ -160,17 +174,64 @@ public class SubmissionsFragment extends Fragment implements
         Snackbar.make(getView(), e.getMessage(), Snackbar.LENGTH_SHORT).show();
     }
 
+    @Override
+    public void openSubmission(Submission submission) {
+        Uri uri = Uri.parse(submission.getShortURL());
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.setData(uri);
+        if(intent.resolveActivity(getContext().getPackageManager()) == null) {
+            Snackbar.make(getView(), R.string.error_no_app, Snackbar.LENGTH_LONG).show();
+            return;
+        }
+        startActivity(new Intent(Intent.ACTION_VIEW).setData(uri));
+    }
+
+    @Override
+    public void clearSubmissions() {
+        if (mAdapter != null)
+            mAdapter.clear();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (mSearchSubscription != null) mSearchSubscription.unsubscribe();
+        if (mSubredditsSubscription != null) {
+            mSubredditsSubscription.unsubscribe();
+            mSubredditsSubscription = null;
+        }
+    }
+
     private void searchSubmissions() {
         LayoutInflater inflater = LayoutInflater.from(getContext());
         View view = inflater.inflate(R.layout.dialog_search, null);
         final EditText inputText = (EditText) view.findViewById(R.id.edit_text_input);
+        PublishSubject<String> queries = PublishSubject.create();
+        inputText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                queries.onNext(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+        if (mSearchSubscription != null) mSearchSubscription.unsubscribe();
+        mSearchSubscription = mPresenter.searchSubmissions(mSubreddit, queries);
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
         builder.setView(view);
-        builder.setPositiveButton(R.string.search_button, (dialog, which) -> {
-            mAdapter.clear();
-            mPresenter.searchSubmissions(mSubreddit, inputText.getText().toString());
-        })
-                .setNegativeButton(R.string.search_cancel, (dialog, which) -> dialog.cancel());
+        builder.setPositiveButton(R.string.search_button, (dialog, which) -> dialog.dismiss())
+                .setNegativeButton(R.string.search_cancel, (dialog, which) -> {
+                    mSearchSubscription.unsubscribe();
+                    mAdapter.clear();
+                    mPresenter.downloadSubmissions(mSubreddit);
+                })
+                .setOnDismissListener(dialog -> queries.onCompleted());
         builder.create().show();
     }
 
@@ -179,17 +240,6 @@ public class SubmissionsFragment extends Fragment implements
         mPresenter.refreshSubmissions(mSubreddit);
     }
 
-    private void loadSubmission(Submission submission) {
-        Uri uri = Uri.parse(submission.getShortURL());
-        Intent intent = new Intent(Intent.ACTION_VIEW);
-        intent.setData(uri);
-        if(intent.resolveActivity(getContext().getPackageManager()) == null) {
-            Snackbar.make(getView(), R.string.error_no_app, Snackbar.LENGTH_LONG).show();
-            return;
-        }
-        startActivity(new Intent(Intent.ACTION_VIEW).setData(uri));
-    }
-
     private void logout() {
         mRecyclerView.setVisibility(View.GONE);
         SharedPreferences prefs = getActivity()
@@ -0,0 +1,161 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.util.JrawUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated submissions shared by the unit tests, the instrumented tests and the benchmarks,
+ * all built from the same JSON template.
+ */
+public final class Fixtures {
+    /**
+     * The number of distinct subreddits the generated submissions are spread over.
+     */
+    public static final int SUBREDDITS = 50;
+    private static final long CREATED_UTC = 1400000000L;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Generates the JSON of the given number of submissions.
+     *
+     * @param count the number of submissions
+     * @return the JSON of every submission
+     */
+    public static List<String> createJson(int count) {
+        List<String> jsons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            jsons.add(createJson(fullName(i), "title " + i, "author" + i, subreddit(i), i,
+                    CREATED_UTC + i));
+        }
+        return jsons;
+    }
+
+    /**
+     * Generates the JSON of a submission with the given fields.
+     *
+     * @param fullName   the fullname of the submission, null to leave it out
+     * @param title      the title of the submission
+     * @param author     the author of the submission
+     * @param subreddit  the subreddit of the submission
+     * @param score      the score of the submission, null to leave it out
+     * @param createdUtc the creation time of the submission, in seconds since the epoch
+     * @return the JSON of the submission
+     */
+    public static String createJson(String fullName, String title, String author,
+                                    String subreddit, Integer score, long createdUtc) {
+        return createJson(fullName, title, author, subreddit, score, createdUtc, "");
+    }
+
+    /**
+     * Generates a submission with the given fullname, title and subreddit.
+     *
+     * @param fullName  the fullname of the submission
+     * @param title     the title of the submission
+     * @param subreddit the subreddit of the submission
+     * @return the generated submission
+     */
+    public static Submission createSubmission(String fullName, String title, String subreddit) {
+        return new Submission(JrawUtils.fromString(createJson(fullName, title, "author0",
+                subreddit, 0, CREATED_UTC)));
+    }
+
+    /**
+     * Generates the given number of submissions.
+     *
+     * @param count the number of submissions
+     * @return the generated submissions
+     */
+    public static List<Submission> createSubmissions(int count) {
+        List<Submission> submissions = new ArrayList<>(count);
+        for (String json : createJson(count)) {
+            submissions.add(new Submission(JrawUtils.fromString(json)));
+        }
+        return submissions;
+    }
+
+    /**
+     * Generates the given number of submissions carrying the media, preview and HTML blobs of
+     * real listings, which the stored payload drops.
+     *
+     * @param count the number of submissions
+     * @return the generated submissions
+     */
+    public static List<Submission> createFullSubmissions(int count) {
+        List<Submission> submissions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String url = "https://i.redd.it/image" + i + ".jpg";
+            String listing = "" +
+                    "   \"id\":\"" + Integer.toString(i, 36) + "\",\n" +
+                    "   \"subreddit_id\":\"t5_2qh1i\",\n" +
+                    "   \"ups\":" + i + ",\n" +
+                    "   \"num_comments\":" + (i % 300) + ",\n" +
+                    "   \"created\":" + (CREATED_UTC + 28800 + i) + ".0,\n" +
+                    "   \"permalink\":\"/r/" + subreddit(i) + "/comments/" + i + "/\",\n" +
+                    "   \"url\":\"" + url + "\",\n" +
+                    "   \"domain\":\"i.redd.it\",\n" +
+                    "   \"is_self\":false,\n" +
+                    "   \"over_18\":false,\n" +
+                    "   \"edited\":false,\n" +
+                    "   \"likes\":null,\n" +
+                    "   \"thumbnail\":\"https://b.thumbs.redditmedia.com/" + i + ".jpg\",\n" +
+                    "   \"selftext_html\":null,\n" +
+                    "   \"media\":null,\n" +
+                    "   \"media_embed\":{},\n" +
+                    "   \"secure_media_embed\":{},\n" +
+                    "   \"preview\":{\"images\":[{\"source\":{\"url\":\"" + url + "\"," +
+                    "\"width\":1920,\"height\":1080},\"resolutions\":[" +
+                    "{\"url\":\"" + url + "?width=108\",\"width\":108,\"height\":60}," +
+                    "{\"url\":\"" + url + "?width=216\",\"width\":216,\"height\":121}," +
+                    "{\"url\":\"" + url + "?width=320\",\"width\":320,\"height\":180}," +
+                    "{\"url\":\"" + url + "?width=640\",\"width\":640,\"height\":360}]," +
+                    "\"variants\":{},\"id\":\"preview" + i + "\"}]},\n" +
+                    "   \"mod_reports\":[],\n" +
+                    "   \"user_reports\":[],\n";
+            submissions.add(new Submission(JrawUtils.fromString(createJson(fullName(i),
+                    "A fairly long submission title number " + i, "author" + i, subreddit(i), i,
+                    CREATED_UTC + i, listing))));
+        }
+        return submissions;
+    }
+
+    /**
+     * Gets the fullname of the generated submission at the given index.
+     *
+     * @param index the index of the generated submission
+     * @return the fullname of the submission
+     */
+    public static String fullName(int index) {
+        return "t3_" + Integer.toString(index, 36);
+    }
+
+    /**
+     * Gets the subreddit of the generated submission at the given index, alternating the case of
+     * the names so case insensitive ordering is exercised.
+     *
+     * @param index the index of the generated submission
+     * @return the subreddit of the submission
+     */
+    public static String subreddit(int index) {
+        int subreddit = index % SUBREDDITS;
+        return (subreddit % 2 == 0 ? "subreddit" : "Subreddit") + subreddit;
+    }
+
+    private static String createJson(String fullName, String title, String author,
+                                     String subreddit, Integer score, long createdUtc,
+                                     String fields) {
+        StringBuilder json = new StringBuilder("{  \n");
+        if (fullName != null) json.append("   \"name\":\"").append(fullName).append("\",\n");
+        json.append("   \"subreddit\":\"").append(subreddit).append("\",\n");
+        json.append("   \"author\":\"").append(author).append("\",\n");
+        json.append("   \"title\":\"").append(title).append("\",\n");
+        if (score != null) json.append("   \"score\":").append(score).append(",\n");
+        json.append(fields);
+        json.append("   \"created_utc\":").append(createdUtc).append("\n");
+        return json.append("}").toString();
+    }
+}
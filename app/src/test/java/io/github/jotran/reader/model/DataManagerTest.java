@@ -0,0 +1,320 @@
+package io.github.jotran.reader.model;
+
+import com.google.common.collect.Lists;
+
+import net.dean.jraw.models.Submission;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.jotran.reader.util.MockSubmission;
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataManagerTest {
+    private static final int CALLERS = 8;
+
+    @Mock
+    private JrawReaderHelper jrawHelper;
+
+    @Mock
+    private SubmissionStore dbHelper;
+
+    private List<MockSubmission> mockSubmissions = Lists.newArrayList(
+            new MockSubmission("title", "author", "1", "subreddit"),
+            new MockSubmission("title2", "author2", "2", "subreddit2")
+    );
+    private DataManager dataManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        AtomicLong lastRevalidated = new AtomicLong();
+        when(dbHelper.getLastRevalidated()).thenAnswer(invocation -> lastRevalidated.get());
+        doAnswer(invocation -> {
+            lastRevalidated.set(invocation.getArgumentAt(0, Long.class));
+            return null;
+        }).when(dbHelper).setLastRevalidated(anyLong());
+        dataManager = new DataManager(jrawHelper, dbHelper, new RetryPolicy());
+    }
+
+    @Test
+    public void concurrentNextPageRequestsShareOneDownload() throws InterruptedException {
+        CountDownLatch requested = new CountDownLatch(CALLERS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger downloads = new AtomicInteger();
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(jrawHelper.downloadPage(anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            int page = downloads.getAndIncrement();
+            release.await(10, TimeUnit.SECONDS);
+            List<Submission> submissions = Lists.newArrayList(mockSubmissions.get(page).getSubmission());
+            return new SavedPage(submissions, "t3_after" + page);
+        });
+
+        List<List<SubmissionSummary>> pages = new CopyOnWriteArrayList<>();
+        List<Thread> callers = Lists.newArrayList();
+        for (int i = 0; i < CALLERS; i++) {
+            Thread caller = new Thread(() -> {
+                Observable<List<SubmissionSummary>> next = dataManager.downloadNextSubmissions(null);
+                requested.countDown();
+                pages.add(next.toBlocking().single());
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        assertTrue(requested.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        for (Thread caller : callers) caller.join(10000);
+
+        assertEquals(CALLERS, pages.size());
+        for (List<SubmissionSummary> page : pages)
+            assertEquals(Lists.newArrayList(mockSubmissions.get(0).getSummary().getTitle()), titles(page));
+        verify(jrawHelper, times(1)).downloadPage(anyString(), anyInt(), any());
+
+        List<SubmissionSummary> nextPage = dataManager.downloadNextSubmissions(null).toBlocking().single();
+        assertEquals(Lists.newArrayList(mockSubmissions.get(1).getSummary().getTitle()), titles(nextPage));
+        verify(jrawHelper, times(2)).downloadPage(anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void nextPageContinuesFromStoredCursor() {
+        List<Submission> page = Lists.newArrayList(mockSubmissions.get(1).getSubmission());
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.getPageAfter()).thenReturn("t3_last");
+        when(dbHelper.getPageLimit()).thenReturn(50);
+        when(jrawHelper.downloadPage("t3_last", 50, RequestScheduler.Priority.FOREGROUND))
+                .thenReturn(new SavedPage(page, "t3_next"));
+
+        List<SubmissionSummary> nextPage = dataManager.downloadNextSubmissions(null).toBlocking().single();
+
+        assertEquals(Lists.newArrayList(mockSubmissions.get(1).getSummary().getTitle()), titles(nextPage));
+        verify(jrawHelper, times(1)).downloadPage("t3_last", 50, RequestScheduler.Priority.FOREGROUND);
+        verify(dbHelper, times(1)).addPagedSubmissions(page, "t3_next", 50);
+    }
+
+    @Test
+    public void nextPageStopsAtEndOfListing() {
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.isPagingComplete()).thenReturn(true);
+
+        List<SubmissionSummary> nextPage = dataManager.downloadNextSubmissions(null).toBlocking().single();
+
+        assertTrue(nextPage.isEmpty());
+        verify(jrawHelper, times(0)).downloadPage(anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void nextPageAfterWalkedHistoryStopsAtStoredEnd() {
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.isSyncComplete()).thenReturn(true);
+
+        List<List<SubmissionSummary>> pages = pageThroughWalkedHistory();
+
+        assertEquals(Lists.newArrayList("t3_1"), fullNames(pages.get(0)));
+        assertEquals(Lists.newArrayList("t3_2", "t3_3"), fullNames(pages.get(1)));
+        assertTrue(pages.get(2).isEmpty());
+        verify(jrawHelper, times(0)).downloadPage(anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void nextPageAfterWalkedHistoryContinuesAfterLastStored() {
+        List<Submission> page = Lists.newArrayList(mockSubmissions.get(1).getSubmission());
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.getPageAfter()).thenReturn("t3_3");
+        when(jrawHelper.downloadPage("t3_3", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.FOREGROUND))
+                .thenReturn(new SavedPage(page, "t3_4"));
+
+        List<List<SubmissionSummary>> pages = pageThroughWalkedHistory();
+
+        assertEquals(Lists.newArrayList(mockSubmissions.get(1).getSummary().getTitle()), titles(pages.get(2)));
+        verify(jrawHelper, times(1)).downloadPage(anyString(), anyInt(), any());
+        verify(jrawHelper, times(1)).downloadPage("t3_3", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.FOREGROUND);
+    }
+
+    @Test
+    public void downloadSubmissionsRevalidatesStaleStore() {
+        List<Submission> newest = Lists.newArrayList(mockSubmissions.get(1).getSubmission());
+        when(dbHelper.getSubmissionCount()).thenReturn(1L);
+        when(dbHelper.getSubmissions(null, null, DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        when(jrawHelper.downloadNewest(any())).thenReturn(newest);
+
+        List<List<SubmissionSummary>> lists = dataManager.downloadSubmissions(null).toList().toBlocking().single();
+
+        assertEquals(2, lists.size());
+        assertEquals(Lists.newArrayList(mockSubmissions.get(0).getSummary()), lists.get(0));
+        assertEquals(Lists.newArrayList(mockSubmissions.get(1).getSummary().getTitle()), titles(lists.get(1)));
+        verify(dbHelper, times(1)).addNewestSubmissions(newest);
+
+        lists = dataManager.downloadSubmissions(null).toList().toBlocking().single();
+
+        assertEquals(1, lists.size());
+        verify(jrawHelper, times(1)).downloadNewest(any());
+    }
+
+    @Test
+    public void downloadSubmissionsRevalidatesOncePerStore() {
+        when(dbHelper.getSubmissionCount()).thenReturn(1L);
+        when(dbHelper.getSubmissions(null, null, DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        when(dbHelper.getSubmissions("subreddit2", null, DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        when(jrawHelper.downloadNewest(any())).thenReturn(Lists.newArrayList());
+
+        dataManager.downloadSubmissions(null).toList().toBlocking().single();
+        List<List<SubmissionSummary>> lists = new DataManager(jrawHelper, dbHelper, new RetryPolicy())
+                .downloadSubmissions("subreddit2").toList().toBlocking().single();
+
+        assertEquals(1, lists.size());
+        assertEquals(Lists.newArrayList(mockSubmissions.get(1).getSummary()), lists.get(0));
+        verify(jrawHelper, times(1)).downloadNewest(any());
+    }
+
+    @Test
+    public void downloadSubmissionsKeepsStoreWhenRevalidationFails() {
+        when(dbHelper.getSubmissionCount()).thenReturn(1L);
+        when(dbHelper.getSubmissions(null, null, DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        when(jrawHelper.downloadNewest(any())).thenThrow(new RuntimeException("offline"));
+
+        List<List<SubmissionSummary>> lists = dataManager.downloadSubmissions(null).toList().toBlocking().single();
+
+        assertEquals(1, lists.size());
+        assertEquals(Lists.newArrayList(mockSubmissions.get(0).getSummary()), lists.get(0));
+    }
+
+    @Test
+    public void syncHistoryResumesFromStoredCursor() {
+        List<Submission> firstPage = Lists.newArrayList(mockSubmissions.get(0).getSubmission());
+        List<Submission> lastPage = Lists.newArrayList(mockSubmissions.get(1).getSubmission());
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.isSyncComplete()).thenReturn(false);
+        when(dbHelper.getSyncAfter()).thenReturn("t3_stored");
+        when(jrawHelper.downloadPage("t3_stored", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND))
+                .thenReturn(new SavedPage(firstPage, "t3_first"));
+        when(jrawHelper.downloadPage("t3_first", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND))
+                .thenReturn(new SavedPage(lastPage, null));
+
+        List<Integer> progress = dataManager.syncHistory().toList().toBlocking().single();
+
+        assertEquals(Lists.newArrayList(1, 2), progress);
+        verify(jrawHelper, times(0)).downloadPage(null, DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND);
+        verify(dbHelper, times(1)).addSyncedSubmissions(firstPage, "t3_first", DataManager.NETWORK_PAGE_LIMIT);
+        verify(dbHelper, times(1)).addSyncedSubmissions(lastPage, null, DataManager.NETWORK_PAGE_LIMIT);
+    }
+
+    @Test
+    public void syncHistoryRetriesFailedPageFromItsCursor() {
+        dataManager = new DataManager(jrawHelper, dbHelper, new RetryPolicy(4, 0, 0, 10, 0.1));
+        List<Submission> lastPage = Lists.newArrayList(mockSubmissions.get(1).getSubmission());
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.isSyncComplete()).thenReturn(false);
+        when(dbHelper.getSyncAfter()).thenReturn("t3_stored");
+        when(jrawHelper.downloadPage("t3_stored", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND))
+                .thenThrow(new RuntimeException(new SocketTimeoutException()))
+                .thenReturn(new SavedPage(lastPage, null));
+
+        List<Integer> progress = dataManager.syncHistory().toList().toBlocking().single();
+
+        assertEquals(Lists.newArrayList(1), progress);
+        verify(jrawHelper, times(2)).downloadPage("t3_stored", DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND);
+        verify(jrawHelper, times(0)).downloadPage(null, DataManager.NETWORK_PAGE_LIMIT,
+                RequestScheduler.Priority.BACKGROUND);
+        verify(dbHelper, times(1)).addSyncedSubmissions(lastPage, null, DataManager.NETWORK_PAGE_LIMIT);
+    }
+
+    @Test
+    public void syncHistorySkipsCompletedWalk() {
+        when(jrawHelper.isAuthenticated()).thenReturn(true);
+        when(dbHelper.isSyncComplete()).thenReturn(true);
+
+        List<Integer> progress = dataManager.syncHistory().toList().toBlocking().single();
+
+        assertTrue(progress.isEmpty());
+        verify(jrawHelper, times(0)).downloadPage(anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void watchSubredditsFoldsChanges() {
+        Map<String, Integer> stored = new HashMap<>();
+        stored.put("subreddit", 2);
+        stored.put("Subreddit2", 1);
+        Map<String, Integer> changes = new HashMap<>();
+        changes.put("subreddit", 0);
+        changes.put("subreddit3", 4);
+        when(dbHelper.watchSubredditCounts()).thenReturn(Observable.just(stored, changes));
+
+        List<Map<String, Integer>> counts = dataManager.watchSubreddits().toList().toBlocking().single();
+
+        assertEquals(2, counts.size());
+        assertEquals(Lists.newArrayList("subreddit", "Subreddit2"), Lists.newArrayList(counts.get(0).keySet()));
+        assertEquals(Lists.newArrayList("Subreddit2", "subreddit3"), Lists.newArrayList(counts.get(1).keySet()));
+        assertEquals(Integer.valueOf(4), counts.get(1).get("subreddit3"));
+    }
+
+    /**
+     * Pages through a store holding the first page downloaded on demand followed by the pages
+     * stored by the saved history walk, then asks for the page past the stored end.
+     */
+    private List<List<SubmissionSummary>> pageThroughWalkedHistory() {
+        when(dbHelper.getSubmissionCount()).thenReturn(3L);
+        when(dbHelper.getSubmissions(null, null, DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(summary("t3_1")));
+        when(dbHelper.getSubmissions(null, "t3_1", DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList(summary("t3_2"), summary("t3_3")));
+        when(dbHelper.getSubmissions(null, "t3_3", DataManager.PAGE_SIZE))
+                .thenReturn(Lists.newArrayList());
+        dataManager.setFreshnessTtl(Long.MAX_VALUE);
+
+        List<List<SubmissionSummary>> pages = Lists.newArrayList();
+        pages.add(dataManager.downloadSubmissions(null).toBlocking().single());
+        pages.add(dataManager.downloadNextSubmissions(null).toBlocking().single());
+        pages.add(dataManager.downloadNextSubmissions(null).toBlocking().single());
+        return pages;
+    }
+
+    private static SubmissionSummary summary(String fullName) {
+        return new SubmissionSummary(fullName, "title", "subreddit", 1, 1, null);
+    }
+
+    private static List<String> fullNames(List<SubmissionSummary> submissions) {
+        List<String> fullNames = Lists.newArrayList();
+        for (SubmissionSummary submission : submissions) fullNames.add(submission.getFullName());
+        return fullNames;
+    }
+
+    private static List<String> titles(List<SubmissionSummary> submissions) {
+        List<String> titles = Lists.newArrayList();
+        for (SubmissionSummary submission : submissions) titles.add(submission.getTitle());
+        return titles;
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.jotran.reader.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+    private RequestScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new RequestScheduler();
+    }
+
+    @Test
+    public void neverSpacesForegroundRequests() throws InterruptedException {
+        scheduler.onRateLimit(100, 60);
+        scheduler.acquire(RequestScheduler.Priority.FOREGROUND);
+
+        assertTrue(scheduler.getDelay(RequestScheduler.Priority.FOREGROUND) <= 0);
+    }
+
+    @Test
+    public void spacesBackgroundRequestsOverWindow() throws InterruptedException {
+        scheduler.onRateLimit(100, 90);
+        scheduler.acquire(RequestScheduler.Priority.BACKGROUND);
+
+        long delay = scheduler.getDelay(RequestScheduler.Priority.BACKGROUND);
+        assertTrue("delay " + delay, delay > 900 && delay <= 90000 / 89);
+    }
+
+    @Test
+    public void keepsReserveForForegroundRequests() {
+        scheduler.onRateLimit(RequestScheduler.FOREGROUND_RESERVE, 60);
+
+        assertTrue(scheduler.getDelay(RequestScheduler.Priority.BACKGROUND) > 59000);
+        assertTrue(scheduler.getDelay(RequestScheduler.Priority.FOREGROUND) <= 0);
+    }
+
+    @Test
+    public void waitsForResetOnceBudgetIsSpent() {
+        scheduler.onRateLimit(0, 60);
+
+        assertTrue(scheduler.getDelay(RequestScheduler.Priority.FOREGROUND) > 59000);
+
+        scheduler.onRateLimit(0, 0);
+
+        assertTrue(scheduler.getDelay(RequestScheduler.Priority.FOREGROUND) <= 0);
+    }
+
+    @Test
+    public void startsForegroundRequestsFirst() throws InterruptedException {
+        List<RequestScheduler.Priority> started = new CopyOnWriteArrayList<>();
+        scheduler.onRateLimit(0, 1);
+        Thread background = start(RequestScheduler.Priority.BACKGROUND, started);
+        Thread.sleep(100);
+        Thread foreground = start(RequestScheduler.Priority.FOREGROUND, started);
+        background.join(10000);
+        foreground.join(10000);
+
+        assertEquals(2, started.size());
+        assertEquals(RequestScheduler.Priority.FOREGROUND, started.get(0));
+    }
+
+    private Thread start(RequestScheduler.Priority priority,
+                         List<RequestScheduler.Priority> started) {
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.acquire(priority);
+                started.add(priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
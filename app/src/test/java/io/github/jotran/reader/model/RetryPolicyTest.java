@@ -0,0 +1,101 @@
+package io.github.jotran.reader.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    @Test
+    public void classifiesTransientErrors() {
+        assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException()));
+        assertTrue(RetryPolicy.isRetryable(new RuntimeException(new SocketTimeoutException())));
+        assertFalse(RetryPolicy.isRetryable(new IOException("Malformed response")));
+        assertFalse(RetryPolicy.isRetryable(new IllegalStateException()));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertFalse(RetryPolicy.isRetryableStatus(401));
+        assertFalse(RetryPolicy.isRetryableStatus(404));
+    }
+
+    @Test
+    public void jittersExponentialDelays() {
+        RetryPolicy policy = new RetryPolicy(4, 100, 1000, 10, 0.1);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.getDelay(1) <= 100);
+            assertTrue(policy.getDelay(3) <= 400);
+            assertTrue(policy.getDelay(40) <= 1000);
+            assertTrue(policy.getDelay(2) >= 0);
+        }
+    }
+
+    @Test
+    public void retriesTransientErrorsUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = failing(attempts, 2, new SocketTimeoutException())
+                .compose(new RetryPolicy(4, 0, 0, 10, 0.1).<String>retry())
+                .toBlocking().single();
+
+        assertEquals("page", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Throwable error = failing(attempts, Integer.MAX_VALUE, new SocketTimeoutException())
+                .compose(new RetryPolicy(4, 0, 0, 10, 0.1).<String>retry())
+                .materialize().toBlocking().first().getThrowable();
+
+        assertTrue(error instanceof SocketTimeoutException);
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void neverRetriesPermanentErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        failing(attempts, Integer.MAX_VALUE, new IllegalArgumentException())
+                .compose(new RetryPolicy(4, 0, 0, 10, 0.1).<String>retry())
+                .materialize().toBlocking().first();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void budgetLimitsRetries() {
+        RetryPolicy policy = new RetryPolicy(4, 0, 0, 2, 0.5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        failing(attempts, Integer.MAX_VALUE, new SocketTimeoutException())
+                .compose(policy.<String>retry()).materialize().toBlocking().first();
+        assertEquals(3, attempts.get());
+        assertFalse(policy.tryAcquire());
+
+        policy.onSuccess();
+        policy.onSuccess();
+        assertTrue(policy.tryAcquire());
+    }
+
+    @Test
+    public void getInstanceSharesOneBudget() {
+        assertSame(RetryPolicy.getInstance(), RetryPolicy.getInstance());
+    }
+
+    private static Observable<String> failing(AtomicInteger attempts, int failures,
+                                              Throwable error) {
+        return Observable.defer(() -> attempts.incrementAndGet() <= failures
+                ? Observable.<String>error(error) : Observable.just("page"));
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.jotran.reader.model;
+
+import com.google.common.collect.Lists;
+
+import net.dean.jraw.models.Submission;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.jotran.reader.util.MockSubmission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SubmissionCacheTest {
+    private Submission submission = new MockSubmission("title", "author", "1", "subreddit").getSubmission();
+    private Submission submission2 = new MockSubmission("title2", "author2", "2", "subreddit2").getSubmission();
+    private SubmissionCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new SubmissionCache(100);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        assertNull(cache.get("t3_1"));
+        cache.put("t3_1", submission, 10, cache.getGeneration());
+        assertSame(submission, cache.get("t3_1"));
+        assertSame(submission, cache.get("t3_1"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverMaxSize() {
+        cache.put("t3_1", submission, 20, cache.getGeneration());
+        cache.put("t3_2", submission2, 20, cache.getGeneration());
+        cache.get("t3_1");
+        cache.put("t3_3", submission2, 20, cache.getGeneration());
+        assertSame(submission, cache.get("t3_1"));
+        assertNull(cache.get("t3_2"));
+        assertEquals(2 * 20 * SubmissionCache.DECODED_SIZE_FACTOR, cache.getSize());
+    }
+
+    @Test
+    public void skipsEntriesLargerThanMaxSize() {
+        cache.put("t3_1", submission, 100 / SubmissionCache.DECODED_SIZE_FACTOR + 1,
+                cache.getGeneration());
+        assertNull(cache.get("t3_1"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void invalidatesWrittenSubmissions() {
+        String fullName = submission.getFullName();
+        cache.put(fullName, submission, 10, cache.getGeneration());
+        cache.invalidate(Lists.newArrayList(submission));
+        assertNull(cache.get(fullName));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void dropsReadsStartedBeforeInvalidation() {
+        long generation = cache.getGeneration();
+        cache.invalidate(Lists.newArrayList(submission2));
+        cache.put("t3_1", submission, 10, generation);
+        assertNull(cache.get("t3_1"));
+    }
+}
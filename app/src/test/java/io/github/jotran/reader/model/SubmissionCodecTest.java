@@ -0,0 +1,67 @@
+package io.github.jotran.reader.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.dean.jraw.util.JrawUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SubmissionCodecTest {
+    private JsonNode data = JrawUtils.fromString("" +
+            "{  \n" +
+            "   \"name\":\"t3_4x9b2z\",\n" +
+            "   \"subreddit\":\"androiddev\",\n" +
+            "   \"author\":\"author\",\n" +
+            "   \"title\":\"title \\u00e9\\ud83d\\ude00\",\n" +
+            "   \"score\":-12,\n" +
+            "   \"created_utc\":1469923200.0,\n" +
+            "   \"num_comments\":300000,\n" +
+            "   \"edited\":false,\n" +
+            "   \"likes\":null,\n" +
+            "   \"upvote_ratio\":0.97,\n" +
+            "   \"preview\":{\"images\":[{\"source\":{\"url\":\"https://i.redd.it/x.png\"}}]},\n" +
+            "   \"selftext_html\":\"&lt;div&gt;text&lt;/div&gt;\"\n" +
+            "}");
+
+    @Test
+    public void roundTripsKeptFields() {
+        byte[] payload = SubmissionCodec.encode(data);
+        JsonNode decoded = SubmissionCodec.decodeData(payload);
+
+        assertEquals(SubmissionCodec.VERSION, payload[0]);
+        for (String field : Arrays.asList("name", "subreddit", "author", "title", "score",
+                "created_utc", "num_comments", "edited", "likes"))
+            assertEquals(field, data.get(field), decoded.get(field));
+        assertTrue(decoded.get("likes").isNull());
+        assertFalse(decoded.has("author_flair_text"));
+    }
+
+    @Test
+    public void dropsUnkeptFields() {
+        JsonNode decoded = SubmissionCodec.decodeData(SubmissionCodec.encode(data));
+
+        assertFalse(decoded.has("preview"));
+        assertFalse(decoded.has("selftext_html"));
+        assertFalse(decoded.has("upvote_ratio"));
+        assertTrue(SubmissionCodec.encode(data).length < data.toString().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() {
+        byte[] payload = SubmissionCodec.encode(data);
+        payload[0] = SubmissionCodec.VERSION + 1;
+        SubmissionCodec.decodeData(payload);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedPayload() {
+        byte[] payload = SubmissionCodec.encode(data);
+        SubmissionCodec.decodeData(Arrays.copyOf(payload, payload.length - 3));
+    }
+}
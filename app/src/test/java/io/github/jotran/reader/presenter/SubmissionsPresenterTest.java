@@ -4,24 +4,29 @@ import android.content.Context;
 
 import com.google.common.collect.Lists;
 
-import net.dean.jraw.models.Submission;
-
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import io.github.jotran.reader.model.DataManager;
+import io.github.jotran.reader.model.SubmissionSummary;
 import io.github.jotran.reader.util.MockSubmission;
 import io.github.jotran.reader.util.RxSchedulersOverrideRule;
 import rx.Observable;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -47,12 +52,25 @@ public class SubmissionsPresenterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        when(dataManager.downloadSubmissions()).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(0).getSubmission())));
-        when(dataManager.downloadSubreddits()).thenReturn(Observable.just(new TreeSet<>(subreddits)));
-        when(dataManager.downloadNextSubmissions()).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(1).getSubmission())));
+        when(dataManager.downloadSubmissions(null)).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(0).getSummary())));
+        when(dataManager.downloadSubmissions(subreddits.get(1))).thenReturn(Observable.just(Lists.newArrayList()));
+        when(dataManager.downloadSubmissions("missing_subreddit")).thenReturn(Observable.just(Lists.newArrayList()));
+        when(dataManager.searchSubmissions(null, "title")).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(0).getSummary())));
+        when(dataManager.searchSubmissions(null, "missing title")).thenReturn(Observable.just(Lists.newArrayList()));
+        when(dataManager.watchSubreddits()).thenReturn(Observable.just(subredditCounts()));
+        when(dataManager.syncSubmissions()).thenReturn(Observable.just(Lists.newArrayList()));
+        when(dataManager.downloadNextSubmissions(null)).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(1).getSummary())));
+        when(dataManager.downloadNextSubmissions(subreddits.get(1))).thenReturn(Observable.just(Lists.newArrayList(mockSubmissions.get(1).getSummary())));
+        when(dataManager.downloadNextSubmissions("missing_subreddit")).thenReturn(Observable.just(Lists.newArrayList()));
         presenter = new SubmissionsPresenter(Mockito.mock(Context.class), submissionsView, dataManager);
     }
 
+    private Map<String, Integer> subredditCounts() {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String subreddit : subreddits) counts.put(subreddit, 1);
+        return counts;
+    }
+
     private void verifyProgressAndNoError() {
         verify(submissionsView, times(1)).showProgressIndicator(true);
         verify(submissionsView, times(1)).showProgressIndicator(false);
@@ -63,103 +81,242 @@ public class SubmissionsPresenterTest {
     @Test
     public void downloadSubmissions() {
         presenter.downloadSubmissions(null);
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(dataManager, times(1)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(0).getSubmission());
+        verify(dataManager, times(1)).downloadSubmissions(null);
+        verify(dataManager, times(0)).downloadSubreddits();
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
     public void downloadSubredditSubmission() {
         presenter.downloadSubmissions(subreddits.get(1));
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(submissionsView, times(0)).showSubmission(any(Submission.class));
+        verify(dataManager, times(1)).downloadSubmissions(subreddits.get(1));
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
         verifyProgressAndNoError();
     }
 
     @Test
     public void downloadMissingSubredditSubmission() {
         presenter.downloadSubmissions("missing_subreddit");
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(submissionsView, times(0)).showSubmission(any(Submission.class));
+        verify(dataManager, times(1)).downloadSubmissions("missing_subreddit");
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
         verifyProgressAndNoError();
     }
 
     @Test
     public void downloadNextSubmissions() {
         presenter.downloadNextSubmissions(null);
-        verify(dataManager, times(1)).downloadNextSubmissions();
-        verify(dataManager, times(1)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(1).getSubmission());
+        verify(dataManager, times(1)).downloadNextSubmissions(null);
+        verify(dataManager, times(0)).downloadSubreddits();
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
     public void downloadSubredditNextSubmission() {
         presenter.downloadNextSubmissions(subreddits.get(1));
-        verify(dataManager, times(1)).downloadNextSubmissions();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(1).getSubmission());
+        verify(dataManager, times(1)).downloadNextSubmissions(subreddits.get(1));
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
     public void downloadMissingSubredditNextSubmission() {
         presenter.downloadNextSubmissions("missing_subreddit");
-        verify(dataManager, times(1)).downloadNextSubmissions();
-        verify(submissionsView, times(0)).showSubmission(any(Submission.class));
+        verify(dataManager, times(1)).downloadNextSubmissions("missing_subreddit");
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
         verifyProgressAndNoError();
     }
 
     @Test
-    public void downloadSubreddits() {
-        presenter.downloadSubmissions(null);
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(dataManager, times(1)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubreddits(new TreeSet<>(subreddits));
-        verifyProgressAndNoError();
+    public void watchSubreddits() {
+        presenter.watchSubreddits();
+        verify(dataManager, times(1)).watchSubreddits();
+        verify(submissionsView, times(1)).showSubreddits(subredditCounts());
+        verify(submissionsView, times(0)).showError(any(Throwable.class));
     }
 
     @Test
     public void searchSubmissions() {
-        presenter.searchSubmissions(null, "title");
-        verify(dataManager, times(1)).downloadSubmissions();
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        verify(dataManager, times(1)).searchSubmissions(null, "title");
         verify(dataManager, times(0)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(0).getSubmission());
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
     public void searchMissingSubmissions() {
-        presenter.searchSubmissions(null, "missing title");
-        verify(dataManager, times(1)).downloadSubmissions();
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("missing title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        verify(dataManager, times(1)).searchSubmissions(null, "missing title");
         verify(dataManager, times(0)).downloadSubreddits();
-        verify(submissionsView, times(0)).showSubmission(any(Submission.class));
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
         verifyProgressAndNoError();
     }
 
     @Test
-    public void searchSubmissionsWithUppercaseString() {
-        presenter.searchSubmissions(null, "TITLE");
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(dataManager, times(0)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(0).getSubmission());
+    public void searchSubmissionsAsTypedSearchesSettledQuery() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("t");
+        queries.onNext("ti");
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        verify(dataManager, times(0)).searchSubmissions(null, "t");
+        verify(dataManager, times(0)).searchSubmissions(null, "ti");
+        verify(dataManager, times(1)).searchSubmissions(null, "title");
+        verify(submissionsView, times(1)).clearSubmissions();
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
-    public void searchSubmissionsWithLowercaseString() {
-        presenter.searchSubmissions(null, "TITLE");
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(dataManager, times(0)).downloadSubreddits();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(0).getSubmission());
+    public void searchSubmissionsAsTypedDropsStaleResults() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        PublishSubject<List<SubmissionSummary>> staleResults = PublishSubject.create();
+        when(dataManager.searchSubmissions(null, "tit")).thenReturn(staleResults);
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("tit");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        staleResults.onNext(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        verify(dataManager, times(1)).searchSubmissions(null, "tit");
+        verify(dataManager, times(1)).searchSubmissions(null, "title");
+        verify(submissionsView, times(2)).clearSubmissions();
+        verify(submissionsView, times(0)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        verify(submissionsView, times(0)).showError(any(Throwable.class));
+    }
+
+    @Test
+    public void searchSubmissionsAsTypedSkipsUnchangedQuery() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        queries.onNext("title ");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        verify(dataManager, times(1)).searchSubmissions(null, "title");
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+    }
+
+    @Test
+    public void searchSubmissionsAsTypedClearsBeforeShowingResults() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        InOrder inOrder = Mockito.inOrder(submissionsView, dataManager);
+        inOrder.verify(submissionsView).clearSubmissions();
+        inOrder.verify(submissionsView).showProgressIndicator(true);
+        inOrder.verify(dataManager).searchSubmissions(null, "title");
+        inOrder.verify(submissionsView).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        inOrder.verify(submissionsView).showProgressIndicator(false);
+    }
+
+    @Test
+    public void prefetchNextSubmissionsWithinDistance() {
+        presenter.setPrefetchDistance(5);
+        presenter.prefetchNextSubmissions(null, 14, 20);
+        verify(dataManager, times(1)).downloadNextSubmissions(null);
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        verify(submissionsView, times(0)).showProgressIndicator(true);
+        verify(submissionsView, times(0)).showError(any(Throwable.class));
+    }
+
+    @Test
+    public void skipPrefetchOutsideDistance() {
+        presenter.setPrefetchDistance(5);
+        presenter.prefetchNextSubmissions(null, 13, 20);
+        verify(dataManager, times(0)).downloadNextSubmissions(null);
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
+    }
+
+    @Test
+    public void skipPrefetchBelowSearchResults() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<String> queries = PublishSubject.create();
+        presenter.searchSubmissions(null, queries, scheduler);
+        queries.onNext("title");
+        scheduler.advanceTimeBy(SubmissionsPresenter.SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        queries.onCompleted();
+        presenter.prefetchNextSubmissions(null, 0, 1);
+        verify(dataManager, times(0)).downloadNextSubmissions(null);
+        presenter.downloadSubmissions(null);
+        presenter.prefetchNextSubmissions(null, 0, 1);
+        verify(dataManager, times(1)).downloadNextSubmissions(null);
+    }
+
+    @Test
+    public void prefetchKeepsOneRequestInFlight() {
+        PublishSubject<List<SubmissionSummary>> nextPage = PublishSubject.create();
+        when(dataManager.downloadNextSubmissions(null)).thenReturn(nextPage);
+        presenter.prefetchNextSubmissions(null, 19, 20);
+        presenter.prefetchNextSubmissions(null, 19, 20);
+        verify(dataManager, times(1)).downloadNextSubmissions(null);
+        nextPage.onNext(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        nextPage.onCompleted();
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        when(dataManager.downloadNextSubmissions(null)).thenReturn(Observable.just(Lists.newArrayList()));
+        presenter.prefetchNextSubmissions(null, 20, 21);
+        verify(dataManager, times(2)).downloadNextSubmissions(null);
+    }
+
+    @Test
+    public void downloadNextAndPrefetchShowPageOnce() {
+        PublishSubject<List<SubmissionSummary>> nextPage = PublishSubject.create();
+        when(dataManager.downloadNextSubmissions(null)).thenReturn(nextPage);
+        presenter.downloadNextSubmissions(null);
+        presenter.prefetchNextSubmissions(null, 19, 20);
+        presenter.downloadNextSubmissions(null);
+        nextPage.onNext(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        nextPage.onCompleted();
+        verify(dataManager, times(1)).downloadNextSubmissions(null);
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
         verifyProgressAndNoError();
     }
 
+    @Test
+    public void downloadSubmissionsShowsNewerSubmissionsInFront() {
+        when(dataManager.downloadSubmissions(null)).thenReturn(Observable.just(
+                Lists.newArrayList(mockSubmissions.get(0).getSummary()),
+                Lists.newArrayList(mockSubmissions.get(1).getSummary())));
+        presenter.downloadSubmissions(null);
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
+        verify(submissionsView, times(1)).showNewSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        verify(submissionsView, times(0)).showSubmissions(Lists.newArrayList(mockSubmissions.get(1).getSummary()));
+        verifyProgressAndNoError();
+    }
+
+    @Test
+    public void openSubmission() {
+        MockSubmission mockSubmission = mockSubmissions.get(0);
+        when(dataManager.downloadSubmission(mockSubmission.getSummary().getFullName()))
+                .thenReturn(Observable.just(mockSubmission.getSubmission()));
+        presenter.openSubmission(mockSubmission.getSummary());
+        verify(dataManager, times(1)).downloadSubmission(mockSubmission.getSummary().getFullName());
+        verify(submissionsView, times(1)).openSubmission(mockSubmission.getSubmission());
+        verify(submissionsView, times(0)).showError(any(Throwable.class));
+    }
+
     @Test
     public void loginWhenNoRefreshToken() {
         when(dataManager.isAuthenticated()).thenReturn(false);
         presenter.authenticate();
-        verify(dataManager, times(1)).clear();
+        verify(dataManager, times(0)).clear();
         verify(dataManager, times(1)).isAuthenticated();
         verify(dataManager, times(0)).authenticateToken(anyObject());
         verify(dataManager, times(0)).authenticateUrl(anyObject());
@@ -198,18 +355,20 @@ public class SubmissionsPresenterTest {
     @Test
     public void refresh() {
         presenter.refreshSubmissions(null);
-        verify(dataManager, times(1)).clear();
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(submissionsView, times(1)).showSubmission(mockSubmissions.get(0).getSubmission());
+        verify(dataManager, times(0)).clear();
+        verify(dataManager, times(1)).syncSubmissions();
+        verify(dataManager, times(1)).downloadSubmissions(null);
+        verify(submissionsView, times(1)).showSubmissions(Lists.newArrayList(mockSubmissions.get(0).getSummary()));
         verifyProgressAndNoError();
     }
 
     @Test
     public void refreshSpecificSubreddit() {
         presenter.refreshSubmissions(subreddits.get(1));
-        verify(dataManager, times(1)).clear();
-        verify(dataManager, times(1)).downloadSubmissions();
-        verify(submissionsView, times(0)).showSubmission(any(Submission.class));
+        verify(dataManager, times(0)).clear();
+        verify(dataManager, times(1)).syncSubmissions();
+        verify(dataManager, times(1)).downloadSubmissions(subreddits.get(1));
+        verify(submissionsView, times(0)).showSubmissions(anyListOf(SubmissionSummary.class));
         verifyProgressAndNoError();
     }
 }
\ No newline at end of file
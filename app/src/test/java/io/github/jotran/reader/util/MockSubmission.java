@@ -3,22 +3,26 @@ package io.github.jotran.reader.util;
 import net.dean.jraw.models.Submission;
 import net.dean.jraw.util.JrawUtils;
 
+import io.github.jotran.reader.model.Fixtures;
+import io.github.jotran.reader.model.SubmissionSummary;
+
 public class MockSubmission {
 
     private Submission submission;
+    private SubmissionSummary summary;
 
     public MockSubmission(String title, String author, String date, String subreddit) {
 
-        submission = new Submission(JrawUtils.fromString("" +
-                "{  \n" +
-                "   \"subreddit\":\"" + subreddit + "\",\n" +
-                "   \"author\":\"" + author + "\",\n" +
-                "   \"title\":\"" + title + "\",\n" +
-                "   \"created_utc\":" + date + "\n" +
-                "}"));
+        submission = new Submission(JrawUtils.fromString(Fixtures.createJson(null, title, author,
+                subreddit, null, Long.parseLong(date))));
+        summary = SubmissionSummary.from(submission);
     }
 
     public Submission getSubmission() {
         return submission;
     }
+
+    public SubmissionSummary getSummary() {
+        return summary;
+    }
 }
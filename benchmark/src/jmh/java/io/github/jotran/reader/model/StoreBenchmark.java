@@ -0,0 +1,113 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the load, filter, search, subreddit and ingest paths of a {@link SubmissionStore}
+ * over the SQLite schema of the app, holding the given number of stored submissions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreBenchmark {
+    /**
+     * The number of submissions of a page, as in {@code DataManager.PAGE_SIZE}.
+     */
+    private static final int PAGE_SIZE = 25;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private File mFile;
+    private JdbcSubmissionStore mStore;
+    private List<Submission> mPage;
+    private String mMiddleFullName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("submissions", ".db");
+        mStore = new JdbcSubmissionStore(mFile.getPath());
+        List<Submission> submissions = Fixtures.createSubmissions(size + PAGE_SIZE);
+        for (int i = 0; i < size; i += 1000) {
+            mStore.addSubmissions(submissions.subList(i, Math.min(i + 1000, size)));
+        }
+        mPage = submissions.subList(size, size + PAGE_SIZE);
+        mMiddleFullName = submissions.get(size / 2).getFullName();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mStore.close();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(mFile.getPath() + suffix).delete();
+        }
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> loadFirstPage() {
+        return mStore.getSubmissions(null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> loadMiddlePage() {
+        return mStore.getSubmissions(null, mMiddleFullName, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> filterSubredditPage() {
+        return mStore.getSubmissions(Fixtures.subreddit(7), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> searchTitles() {
+        return mStore.searchSubmissions(null, "title 7", PAGE_SIZE);
+    }
+
+    /**
+     * Reads the set of subreddits the drawer is built from.
+     */
+    @Benchmark
+    public Set<String> loadSubreddits() {
+        return mStore.getSubreddits();
+    }
+
+    /**
+     * Reads the subreddit counts a subscriber watching them receives first.
+     */
+    @Benchmark
+    public Map<String, Integer> loadSubredditCounts() {
+        return mStore.getSubredditCounts();
+    }
+
+    @Benchmark
+    public Submission getSubmission() {
+        return mStore.getSubmission(mMiddleFullName);
+    }
+
+    /**
+     * Writes the same page on every invocation, so after the first one this measures the
+     * update-in-place path of a sync revisiting stored submissions.
+     */
+    @Benchmark
+    public void ingestPage() {
+        mStore.addSubmissions(mPage);
+    }
+}
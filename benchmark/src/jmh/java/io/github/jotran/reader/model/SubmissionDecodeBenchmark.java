@@ -0,0 +1,68 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.util.JrawUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures hydrating stored submissions, from the JSON text stored before version 11 of the
+ * database and from the current {@link SubmissionCodec} payload, and summarizing downloaded
+ * submissions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SubmissionDecodeBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<String> mJsons;
+    private List<byte[]> mPayloads;
+    private List<Submission> mSubmissions;
+
+    @Setup
+    public void setUp() {
+        mJsons = Fixtures.createJson(size);
+        mSubmissions = new ArrayList<>(size);
+        mPayloads = new ArrayList<>(size);
+        for (String json : mJsons) {
+            Submission submission = new Submission(JrawUtils.fromString(json));
+            mSubmissions.add(submission);
+            mPayloads.add(SubmissionCodec.encode(submission));
+        }
+    }
+
+    @Benchmark
+    public void decodeJson(Blackhole blackhole) {
+        for (String json : mJsons) blackhole.consume(new Submission(JrawUtils.fromString(json)));
+    }
+
+    @Benchmark
+    public void decodePayload(Blackhole blackhole) {
+        for (byte[] payload : mPayloads) blackhole.consume(SubmissionCodec.decode(payload));
+    }
+
+    @Benchmark
+    public void encodePayload(Blackhole blackhole) {
+        for (Submission submission : mSubmissions)
+            blackhole.consume(SubmissionCodec.encode(submission));
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> summarize() {
+        return SubmissionLists.summarize(mSubmissions);
+    }
+}
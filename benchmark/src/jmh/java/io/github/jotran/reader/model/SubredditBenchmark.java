@@ -0,0 +1,64 @@
+package io.github.jotran.reader.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filtering downloaded pages by subreddit and folding a page's changes into the watched
+ * subreddit counts. Reading the subreddits of a populated store is measured by
+ * {@link StoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubredditBenchmark {
+    /**
+     * The number of submissions of a page, as in {@code DataManager.PAGE_SIZE}.
+     */
+    private static final int PAGE_SIZE = 25;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<SubmissionSummary> mSummaries;
+    private Map<String, Integer> mCounts;
+    private Map<String, Integer> mPageChanges;
+
+    @Setup
+    public void setUp() {
+        mSummaries = SubmissionLists.summarize(Fixtures.createSubmissions(size));
+        Map<String, Integer> snapshot = new HashMap<>();
+        for (SubmissionSummary summary : mSummaries) {
+            Integer count = snapshot.get(summary.getSubreddit());
+            snapshot.put(summary.getSubreddit(), count == null ? 1 : count + 1);
+        }
+        mCounts = SubmissionLists.foldSubredditCounts(Collections.emptyMap(), snapshot);
+        mPageChanges = new HashMap<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            String subreddit = Fixtures.subreddit(i);
+            mPageChanges.put(subreddit, mCounts.get(subreddit) + 1);
+        }
+    }
+
+    @Benchmark
+    public List<SubmissionSummary> filterSubreddit() {
+        return SubmissionLists.filter(mSummaries, Fixtures.subreddit(7));
+    }
+
+    @Benchmark
+    public Map<String, Integer> foldPageIntoSubredditCounts() {
+        return SubmissionLists.foldSubredditCounts(mCounts, mPageChanges);
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.http.oauth.OAuthException;
+import net.dean.jraw.paginators.Paginator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the app's whole walk of the saved history, {@link HistorySync#walk}, from the
+ * {@link JrawReaderHelper} requests served by a {@link LocalRedditServer} to the pages committed
+ * to a {@link JdbcSubmissionStore}. Every invocation starts from an empty store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncBenchmark {
+    @Param({"10000", "100000"})
+    public int size;
+
+    /**
+     * The latency of every request to the server, in milliseconds.
+     */
+    @Param({"0", "50"})
+    public long latency;
+
+    private LocalRedditServer mServer;
+    private JrawReaderHelper mJrawHelper;
+    private RetryPolicy mRetryPolicy;
+    private File mFile;
+    private JdbcSubmissionStore mStore;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException, OAuthException {
+        mServer = new LocalRedditServer(size);
+        mServer.setRateLimit(Integer.MAX_VALUE, TimeUnit.MINUTES.toMillis(10));
+        mServer.setLatency(latency);
+        mJrawHelper = mServer.createHelper();
+        mServer.authenticate(mJrawHelper);
+        mRetryPolicy = new RetryPolicy();
+    }
+
+    @Setup(Level.Invocation)
+    public void openStore() throws IOException {
+        mFile = File.createTempFile("submissions", ".db");
+        mStore = new JdbcSubmissionStore(mFile.getPath());
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeStore() {
+        mStore.close();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(mFile.getPath() + suffix).delete();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        mServer.close();
+    }
+
+    @Benchmark
+    public int syncHistory() {
+        return HistorySync.walk(mJrawHelper, mStore, mRetryPolicy,
+                Paginator.RECOMMENDED_MAX_LIMIT)
+                .toBlocking().lastOrDefault(0);
+    }
+}
@@ -0,0 +1,442 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+/**
+ * {@link SubmissionStore} over the SQLite JDBC driver, so the storage paths of the app run on a
+ * plain JVM.
+ * <p>
+ * The database is created from the same {@link SubmissionsSchema} as {@link SubmissionDbHelper}
+ * and written the same way: one transaction per write through prepared statements, with
+ * write-ahead logging so every thread reads through its own connection while a write is in
+ * progress. The statements, their arguments, the positions of written submissions and the
+ * published subreddit count changes all come from {@link SubmissionsSchema} and
+ * {@link SubmissionLists}, this class only runs them over JDBC. Unlike the Android store, hydrated submissions are not cached, every
+ * {@link #getSubmission} decodes the stored payload.
+ * <p>
+ * Failures of the driver are rethrown unchecked, as {@code android.database.SQLException} is on
+ * Android.
+ */
+public class JdbcSubmissionStore implements SubmissionStore, Closeable {
+    private final String mUrl;
+    private final Connection mWriter;
+    private final List<Connection> mReaders = new ArrayList<>();
+    private final ThreadLocal<Connection> mReader = new ThreadLocal<>();
+    private final Subject<Map<String, Integer>, Map<String, Integer>> mSubredditChanges =
+            PublishSubject.<Map<String, Integer>>create().toSerialized();
+    private final Object mSubredditLock = new Object();
+    private volatile long mLastRevalidated;
+
+    /**
+     * Opens the store in the SQLite database file at the given path, creating the schema if the
+     * file is new.
+     *
+     * @param path the path of the database file
+     */
+    public JdbcSubmissionStore(String path) {
+        mUrl = "jdbc:sqlite:" + path;
+        try {
+            mWriter = DriverManager.getConnection(mUrl);
+            try (Statement statement = mWriter.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                ResultSet tables = statement.executeQuery("SELECT COUNT(*) FROM sqlite_master " +
+                        "WHERE type = 'table' AND name = '" +
+                        SubmissionsContract.SubmissionEntry.TABLE_NAME + "'");
+                boolean exists = tables.next() && tables.getInt(1) > 0;
+                tables.close();
+                if (!exists) execute(SubmissionsSchema.SQL_CREATE_ENTRIES);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void reset() {
+        Map<String, Integer> before = mSubredditChanges.hasObservers() ? getSubredditCounts()
+                : null;
+        synchronized (mWriter) {
+            execute(SubmissionsSchema.SQL_DELETE_ENTRIES, SubmissionsSchema.SQL_CREATE_ENTRIES);
+            mLastRevalidated = 0;
+        }
+        if (before != null) publishSubredditCounts(before.keySet(), before);
+    }
+
+    @Override
+    public void addSubmissions(List<Submission> submissions) {
+        write(submissions, false, null, null, 0);
+    }
+
+    @Override
+    public void addNewestSubmissions(List<Submission> submissions) {
+        write(submissions, true, null, null, 0);
+    }
+
+    @Override
+    public void addSyncedSubmissions(List<Submission> submissions, String after, int limit) {
+        write(submissions, false, SubmissionsSchema.HISTORY_LISTING, after, limit);
+    }
+
+    @Override
+    public void addPagedSubmissions(List<Submission> submissions, String after, int limit) {
+        write(submissions, false, SubmissionsSchema.PAGES_LISTING, after, limit);
+    }
+
+    @Override
+    public String getSyncAfter() {
+        return getSyncState(SubmissionsSchema.HISTORY_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_AFTER);
+    }
+
+    @Override
+    public boolean isSyncComplete() {
+        return "1".equals(getSyncState(SubmissionsSchema.HISTORY_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE));
+    }
+
+    @Override
+    public String getPageAfter() {
+        return queryString(SubmissionsSchema.SQL_SELECT_LAST_FULLNAME);
+    }
+
+    @Override
+    public boolean isPagingComplete() {
+        return "1".equals(getSyncState(SubmissionsSchema.PAGES_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_COMPLETE));
+    }
+
+    @Override
+    public int getPageLimit() {
+        String limit = getSyncState(SubmissionsSchema.PAGES_LISTING,
+                SubmissionsContract.SyncStateEntry.COLUMN_NAME_PAGE_LIMIT);
+        return limit == null ? 0 : Integer.parseInt(limit);
+    }
+
+    @Override
+    public long getLastRevalidated() {
+        return mLastRevalidated;
+    }
+
+    @Override
+    public void setLastRevalidated(long time) {
+        mLastRevalidated = time;
+    }
+
+    @Override
+    public List<SubmissionSummary> getSubmissions(String subreddit, String afterFullName,
+                                                  int limit) {
+        List<String> clauses = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        if (subreddit != null) {
+            clauses.add(SubmissionsContract.SubmissionEntry.COLUMN_NAME_SUBREDDIT + " = ?");
+            args.add(subreddit);
+        }
+        if (afterFullName != null) {
+            clauses.add(SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " > (SELECT " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION + " FROM " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " WHERE " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?)");
+            args.add(afterFullName);
+        }
+        return getSummaries(clauses, args, SubmissionSort.SAVED, limit);
+    }
+
+    @Override
+    public List<SubmissionSummary> searchSubmissions(String subreddit, String query, int limit) {
+        String match = SubmissionsSchema.toMatchExpression(query);
+        if (match.isEmpty()) return new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(match);
+        if (subreddit != null) args.add(subreddit);
+        return querySummaries(SubmissionsSchema.searchQuery(subreddit != null, limit), args);
+    }
+
+    @Override
+    public List<SubmissionSummary> getSortedSubmissions(SubmissionSort sort, long fromCreatedUtc,
+                                                        long toCreatedUtc, int limit) {
+        List<String> clauses = new ArrayList<>();
+        clauses.add(SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC +
+                " BETWEEN ? AND ?");
+        return getSummaries(clauses, Arrays.asList(String.valueOf(fromCreatedUtc),
+                String.valueOf(toCreatedUtc)), sort, limit);
+    }
+
+    @Override
+    public Submission getSubmission(String fullName) {
+        try (PreparedStatement statement = reader().prepareStatement("SELECT " +
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_PAYLOAD + " FROM " +
+                SubmissionsContract.SubmissionEntry.TABLE_NAME + " WHERE " +
+                SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?")) {
+            statement.setString(1, fullName);
+            ResultSet rows = statement.executeQuery();
+            return rows.next() ? SubmissionCodec.decode(rows.getBytes(1)) : null;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getSubmissionCount() {
+        return Long.parseLong(queryString("SELECT COUNT(*) FROM " +
+                SubmissionsContract.SubmissionEntry.TABLE_NAME));
+    }
+
+    @Override
+    public boolean hasSubmission(String fullName) {
+        return queryString("SELECT 1 FROM " + SubmissionsContract.SubmissionEntry.TABLE_NAME +
+                " WHERE " + SubmissionsContract.SubmissionEntry.COLUMN_NAME_FULLNAME + " = ?",
+                fullName) != null;
+    }
+
+    @Override
+    public Set<String> getSubreddits() {
+        Set<String> subreddits = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subreddits.addAll(getSubredditCounts().keySet());
+        return subreddits;
+    }
+
+    @Override
+    public Map<String, Integer> getSubredditCounts() {
+        return querySubredditCounts(SubmissionsSchema.subredditCountsQuery(0),
+                new ArrayList<>());
+    }
+
+    @Override
+    public Observable<Map<String, Integer>> watchSubredditCounts() {
+        return Observable.create(subscriber -> {
+            synchronized (mSubredditLock) {
+                subscriber.onNext(getSubredditCounts());
+                mSubredditChanges.unsafeSubscribe(subscriber);
+            }
+        });
+    }
+
+    /**
+     * Closes every connection of the store.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (mReaders) {
+                for (Connection reader : mReaders) reader.close();
+                mReaders.clear();
+            }
+            mWriter.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the given submissions, and the given listing's cursor if there is a listing, in a
+     * single transaction.
+     *
+     * @param submissions the submissions to write, in saved order
+     * @param newest      true if the submissions are more recent than the stored submissions
+     * @param listing     the listing the submissions belong to, null to not store a cursor
+     * @param after       the fullname the listing continues after, null if the listing ended
+     * @param limit       the number of submissions requested per page of the listing
+     */
+    private void write(List<Submission> submissions, boolean newest, String listing,
+                       String after, int limit) {
+        if (submissions.isEmpty() && listing == null) return;
+        Set<String> subreddits = SubmissionLists.getSubredditNames(submissions);
+        Map<String, Integer> before = mSubredditChanges.hasObservers()
+                ? getSubredditCounts(subreddits) : null;
+        synchronized (mWriter) {
+            try {
+                mWriter.setAutoCommit(false);
+                try {
+                    writeSubmissions(submissions, newest);
+                    if (listing != null) {
+                        try (PreparedStatement statement =
+                                     mWriter.prepareStatement(SubmissionsSchema.SQL_REPLACE_SYNC_STATE)) {
+                            bind(statement, SubmissionsSchema.syncStateArgs(listing, after, limit));
+                            statement.executeUpdate();
+                        }
+                    }
+                    mWriter.commit();
+                } catch (SQLException | RuntimeException e) {
+                    mWriter.rollback();
+                    throw e;
+                } finally {
+                    mWriter.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        publishSubredditCounts(subreddits, before);
+    }
+
+    private void writeSubmissions(List<Submission> submissions, boolean newest)
+            throws SQLException {
+        if (submissions.isEmpty()) return;
+        try (PreparedStatement update = mWriter.prepareStatement(SubmissionsSchema.SQL_UPDATE_ENTRY);
+             PreparedStatement insert = mWriter.prepareStatement(SubmissionsSchema.SQL_INSERT_ENTRY,
+                     Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement selectId =
+                     mWriter.prepareStatement(SubmissionsSchema.SQL_SELECT_ENTRY_ID);
+             PreparedStatement index =
+                     mWriter.prepareStatement(SubmissionsSchema.SQL_INDEX_SEARCH_ENTRY);
+             Statement positions = mWriter.createStatement()) {
+            ResultSet rows = positions.executeQuery(SubmissionsSchema.positionQuery(newest));
+            rows.next();
+            long position = SubmissionsSchema.firstPosition(rows.getLong(1), submissions.size(),
+                    newest);
+            rows.close();
+            for (Submission submission : submissions) {
+                long id;
+                Object[] args = SubmissionsSchema.entryArgs(submission);
+                bind(update, args);
+                if (update.executeUpdate() > 0) {
+                    selectId.setString(1, submission.getFullName());
+                    ResultSet ids = selectId.executeQuery();
+                    ids.next();
+                    id = ids.getLong(1);
+                    ids.close();
+                } else {
+                    bind(insert, args);
+                    insert.setLong(args.length + 1, position);
+                    insert.executeUpdate();
+                    ResultSet keys = insert.getGeneratedKeys();
+                    keys.next();
+                    id = keys.getLong(1);
+                    keys.close();
+                }
+                position++;
+                bind(index, SubmissionsSchema.searchEntryArgs(id, submission));
+                index.executeUpdate();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Object[] args) throws SQLException {
+        statement.clearParameters();
+        for (int i = 0; i < args.length; i++) statement.setObject(i + 1, args[i]);
+    }
+
+    private String getSyncState(String listing, String column) {
+        return queryString(SubmissionsSchema.syncStateQuery(column), listing);
+    }
+
+    private List<SubmissionSummary> getSummaries(List<String> clauses, List<String> args,
+                                                 SubmissionSort sort, int limit) {
+        String sql = "SELECT " + SubmissionsSchema.join(SubmissionsSchema.COMMA_SEP,
+                SubmissionsSchema.SUMMARY_PROJECTION) + " FROM " +
+                SubmissionsContract.SubmissionEntry.TABLE_NAME +
+                (clauses.isEmpty() ? "" : " WHERE " + SubmissionsSchema.join(" AND ",
+                        clauses.toArray(new String[clauses.size()]))) +
+                " ORDER BY " + sort.getOrderBy() + " LIMIT " + limit;
+        return querySummaries(sql, args);
+    }
+
+    private List<SubmissionSummary> querySummaries(String sql, List<String> args) {
+        List<SubmissionSummary> submissions = new ArrayList<>();
+        try (PreparedStatement statement = reader().prepareStatement(sql)) {
+            for (int i = 0; i < args.size(); i++) statement.setString(i + 1, args.get(i));
+            ResultSet rows = statement.executeQuery();
+            while (rows.next()) {
+                submissions.add(new SubmissionSummary(rows.getString(1), rows.getString(2),
+                        rows.getString(3), rows.getInt(4), rows.getLong(5), rows.getString(6)));
+            }
+            return submissions;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String queryString(String sql, String... args) {
+        try (PreparedStatement statement = reader().prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) statement.setString(i + 1, args[i]);
+            ResultSet rows = statement.executeQuery();
+            return rows.next() ? rows.getString(1) : null;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Integer> getSubredditCounts(Set<String> subreddits) {
+        if (subreddits.isEmpty()) return new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        return querySubredditCounts(SubmissionsSchema.subredditCountsQuery(subreddits.size()),
+                new ArrayList<>(subreddits));
+    }
+
+    private Map<String, Integer> querySubredditCounts(String sql, List<String> args) {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (PreparedStatement statement = reader().prepareStatement(sql)) {
+            for (int i = 0; i < args.size(); i++) statement.setString(i + 1, args.get(i));
+            ResultSet rows = statement.executeQuery();
+            while (rows.next()) counts.put(rows.getString(1), rows.getInt(2));
+            return counts;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Publishes the counts of the given subreddits that differ from the given counts taken
+     * before a write, as {@link SubmissionDbHelper} does.
+     */
+    private void publishSubredditCounts(Set<String> subreddits, Map<String, Integer> before) {
+        synchronized (mSubredditLock) {
+            if (subreddits.isEmpty() || !mSubredditChanges.hasObservers()) return;
+            Map<String, Integer> changes = SubmissionLists.diffSubredditCounts(subreddits, before,
+                    getSubredditCounts(subreddits));
+            if (!changes.isEmpty()) mSubredditChanges.onNext(changes);
+        }
+    }
+
+    /**
+     * Gets the calling thread's read connection, opening it on first use.
+     */
+    private Connection reader() throws SQLException {
+        Connection reader = mReader.get();
+        if (reader == null) {
+            reader = DriverManager.getConnection(mUrl);
+            mReader.set(reader);
+            synchronized (mReaders) {
+                mReaders.add(reader);
+            }
+        }
+        return reader;
+    }
+
+    private void execute(String[]... statements) {
+        try (Statement statement = mWriter.createStatement()) {
+            mWriter.setAutoCommit(false);
+            try {
+                for (String[] group : statements) {
+                    for (String sql : group) statement.execute(sql);
+                }
+                mWriter.commit();
+            } catch (SQLException e) {
+                mWriter.rollback();
+                throw e;
+            } finally {
+                mWriter.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
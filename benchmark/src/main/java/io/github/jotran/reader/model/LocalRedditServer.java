@@ -0,0 +1,476 @@
+package io.github.jotran.reader.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.dean.jraw.http.UserAgent;
+import net.dean.jraw.http.oauth.Credentials;
+import net.dean.jraw.http.oauth.OAuthException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Local stand-in for the parts of the reddit API the app calls, so paging, sync and retries run
+ * without network.
+ * <p>
+ * The server serves the OAuth token and revoke endpoints, {@code /api/v1/me} and the
+ * {@code /user/{name}/saved} listing of a generated saved history, newest first, honouring the
+ * {@code limit} and {@code after} arguments the way reddit does. Every response carries
+ * reddit's rate limit headers, and requests over the budget of the current window are answered
+ * with 429. Latency and failures can be injected for every request.
+ * <p>
+ * Clients reach the server through {@link RedditRedirectInterceptor}, which sends the requests
+ * meant for reddit's hosts to it.
+ */
+public class LocalRedditServer implements Closeable {
+    /**
+     * The name of the user every token authenticates as.
+     */
+    public static final String USER_NAME = "reader";
+    /**
+     * The largest page reddit serves, larger limits are clamped to it.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+    /**
+     * The number of requests reddit allows per rate limit window for an OAuth client.
+     */
+    public static final int DEFAULT_RATE_LIMIT = 600;
+    /**
+     * The length of reddit's rate limit window, in seconds.
+     */
+    public static final int DEFAULT_RATE_LIMIT_WINDOW = 600;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long NEWEST_CREATED_UTC = 1469923200L;
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mRateLimitedCount = new AtomicInteger();
+    private final Random mRandom = new Random(42);
+    private volatile int mSubmissionCount;
+    private volatile int mMaxPageSize = MAX_PAGE_SIZE;
+    private volatile long mLatencyMs;
+    private volatile int mRateLimit = DEFAULT_RATE_LIMIT;
+    private volatile long mRateLimitWindowMs = TimeUnit.SECONDS.toMillis(DEFAULT_RATE_LIMIT_WINDOW);
+    private volatile double mErrorRate;
+    private volatile int mErrorStatus = 503;
+    private int mFailures;
+    private int mFailureStatus;
+    private long mWindowStart;
+    private int mWindowUsed;
+
+    /**
+     * Starts a server on a free port of the loopback interface, serving the given number of
+     * saved submissions.
+     *
+     * @param submissionCount the number of submissions in the saved listing
+     * @throws IOException if the server could not be started
+     */
+    public LocalRedditServer(int submissionCount) throws IOException {
+        mSubmissionCount = submissionCount;
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", this::handle);
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    /**
+     * Gets the host the server listens on.
+     *
+     * @return the loopback address of the server
+     */
+    public String getHost() {
+        return mServer.getAddress().getAddress().getHostAddress();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    /**
+     * Creates the app's {@code JrawReaderHelper} with every request to reddit served by this
+     * server, scheduled within the rate limit of the responses as in the app.
+     *
+     * @return the helper pointed at this server, not yet authenticated
+     */
+    public JrawReaderHelper createHelper() {
+        return new JrawReaderHelper(new OkHttpClient.Builder()
+                .addInterceptor(new RedditRedirectInterceptor(getHost(), getPort())),
+                UserAgent.of("desktop", "io.github.jotran.reader", "v0.1", "reader-benchmark"),
+                Credentials.installedApp("local-client-id", JrawReaderHelper.REDIRECT_URL));
+    }
+
+    /**
+     * Authenticates the given helper the way the app does with a stored refresh token.
+     *
+     * @param jrawHelper a helper created by {@link #createHelper}
+     * @throws OAuthException if the server refused the token
+     */
+    public void authenticate(JrawReaderHelper jrawHelper) throws OAuthException {
+        jrawHelper.authenticateToken("local-refresh-token");
+    }
+
+    /**
+     * Sets the number of submissions in the saved listing.
+     *
+     * @param submissionCount the number of submissions
+     */
+    public void setSubmissionCount(int submissionCount) {
+        mSubmissionCount = submissionCount;
+    }
+
+    /**
+     * Sets the largest page served, larger limits are clamped to it.
+     *
+     * @param maxPageSize the largest number of submissions per page
+     */
+    public void setMaxPageSize(int maxPageSize) {
+        mMaxPageSize = maxPageSize;
+    }
+
+    /**
+     * Sets the time every request takes before it is answered.
+     *
+     * @param latency the latency of every request, in milliseconds
+     */
+    public void setLatency(long latency) {
+        mLatencyMs = latency;
+    }
+
+    /**
+     * Sets the rate limit budget, starting a new window.
+     *
+     * @param requests the number of requests allowed per window
+     * @param window   the length of a window, in milliseconds
+     */
+    public synchronized void setRateLimit(int requests, long window) {
+        mRateLimit = requests;
+        mRateLimitWindowMs = window;
+        mWindowStart = 0;
+    }
+
+    /**
+     * Makes the given share of the requests fail with the given status. Failures are drawn from
+     * a fixed seed, so a run is repeatable.
+     *
+     * @param rate   the share of requests to fail, between 0 and 1
+     * @param status the HTTP status of the failed requests
+     */
+    public void setErrorRate(double rate, int status) {
+        mErrorRate = rate;
+        mErrorStatus = status;
+    }
+
+    /**
+     * Makes the next given number of requests fail with the given status.
+     *
+     * @param requests the number of requests to fail
+     * @param status   the HTTP status of the failed requests
+     */
+    public synchronized void failNext(int requests, int status) {
+        mFailures = requests;
+        mFailureStatus = status;
+    }
+
+    /**
+     * Gets the number of requests the server has received.
+     *
+     * @return the number of requests, including the failed and rate limited ones
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Gets the number of requests the server answered with 429 because the rate limit budget
+     * was spent.
+     *
+     * @return the number of rate limited requests
+     */
+    public int getRateLimitedCount() {
+        return mRateLimitedCount.get();
+    }
+
+    /**
+     * Gets the fullname of the generated submission at the given position of the saved listing.
+     *
+     * @param index the position in the saved listing, 0 being the newest
+     * @return the fullname of the submission
+     */
+    public static String getFullName(int index) {
+        return "t3_" + Integer.toString(index + 1, 36);
+    }
+
+    /**
+     * Stops the server.
+     */
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            mRequestCount.incrementAndGet();
+            if (mLatencyMs > 0) Thread.sleep(mLatencyMs);
+            int[] rateLimit = acquire();
+            exchange.getResponseHeaders().add("X-Ratelimit-Used", String.valueOf(rateLimit[0]));
+            exchange.getResponseHeaders().add("X-Ratelimit-Remaining",
+                    String.valueOf((double) Math.max(mRateLimit - rateLimit[0], 0)));
+            exchange.getResponseHeaders().add("X-Ratelimit-Reset", String.valueOf(rateLimit[1]));
+            if (rateLimit[0] > mRateLimit) {
+                mRateLimitedCount.incrementAndGet();
+                respond(exchange, 429, error(429, "Too Many Requests"));
+                return;
+            }
+            int failure = nextFailure();
+            if (failure != 0) {
+                respond(exchange, failure, error(failure, "Injected failure"));
+                return;
+            }
+            route(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith(".json")) path = path.substring(0, path.length() - 5);
+        if (path.equals("/api/v1/access_token")) {
+            respond(exchange, 200, accessToken());
+        } else if (path.equals("/api/v1/revoke_token")) {
+            respond(exchange, 204, null);
+        } else if (path.equals("/api/v1/me")) {
+            respond(exchange, 200, account());
+        } else if (path.startsWith("/user/") && path.endsWith("/saved")) {
+            respond(exchange, 200, savedListing(parseQuery(exchange.getRequestURI().getRawQuery())));
+        } else {
+            respond(exchange, 404, error(404, "Not Found"));
+        }
+    }
+
+    /**
+     * Counts a request against the current rate limit window, starting a new window once the
+     * current one has elapsed.
+     *
+     * @return the number of requests used in the window and the seconds until it resets
+     */
+    private synchronized int[] acquire() {
+        long now = System.currentTimeMillis();
+        if (mWindowStart == 0 || now - mWindowStart >= mRateLimitWindowMs) {
+            mWindowStart = now;
+            mWindowUsed = 0;
+        }
+        mWindowUsed++;
+        long reset = TimeUnit.MILLISECONDS.toSeconds(mWindowStart + mRateLimitWindowMs - now + 999);
+        return new int[]{mWindowUsed, (int) reset};
+    }
+
+    private synchronized int nextFailure() {
+        if (mFailures > 0) {
+            mFailures--;
+            return mFailureStatus;
+        }
+        return mErrorRate > 0 && mRandom.nextDouble() < mErrorRate ? mErrorStatus : 0;
+    }
+
+    private ObjectNode savedListing(Map<String, String> query) {
+        int limit = MAX_PAGE_SIZE;
+        if (query.containsKey("limit")) limit = Integer.parseInt(query.get("limit"));
+        limit = Math.max(1, Math.min(limit, mMaxPageSize));
+        int start = 0;
+        String after = query.get("after");
+        if (after != null && after.startsWith("t3_"))
+            start = Integer.parseInt(after.substring(3), 36);
+        int end = Math.min(start + limit, mSubmissionCount);
+
+        ArrayNode children = JsonNodeFactory.instance.arrayNode();
+        for (int i = start; i < end; i++) {
+            ObjectNode child = children.addObject();
+            child.put("kind", "t3");
+            child.set("data", createSubmission(i));
+        }
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        data.put("modhash", "");
+        data.set("children", children);
+        if (end < mSubmissionCount) data.put("after", getFullName(end - 1));
+        else data.putNull("after");
+        if (start > 0) data.put("before", getFullName(start));
+        else data.putNull("before");
+        ObjectNode listing = JsonNodeFactory.instance.objectNode();
+        listing.put("kind", "Listing");
+        listing.set("data", data);
+        return listing;
+    }
+
+    /**
+     * Generates the reddit JSON of the submission at the given position of the saved listing,
+     * with the fields, sizes and null values of real listings, self posts and link posts
+     * alternating.
+     *
+     * @param index the position in the saved listing, 0 being the newest
+     * @return the data node of the submission
+     */
+    static ObjectNode createSubmission(int index) {
+        String id = Integer.toString(index + 1, 36);
+        String subreddit = Fixtures.subreddit(index);
+        boolean self = index % 3 == 0;
+        long created = NEWEST_CREATED_UTC - index * 600L;
+        String permalink = "/r/" + subreddit + "/comments/" + id + "/saved_submission_" + index +
+                "/";
+        StringBuilder selftext = new StringBuilder();
+        if (self) {
+            for (int i = 0; i < 1 + index % 7; i++)
+                selftext.append("Paragraph ").append(i).append(" of saved submission ")
+                        .append(index).append(", with enough words to look like a post.\n\n");
+        }
+
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        data.put("domain", self ? "self." + subreddit : "i.redd.it");
+        data.putNull("banned_by");
+        data.putNull("media_embed");
+        data.put("subreddit", subreddit);
+        data.put("selftext_html", self ? "&lt;!-- SC_OFF --&gt;&lt;div class=\"md\"&gt;&lt;p&gt;" +
+                selftext + "&lt;/p&gt;&lt;/div&gt;&lt;!-- SC_ON --&gt;" : null);
+        data.put("selftext", selftext.toString());
+        data.putNull("likes");
+        data.putNull("suggested_sort");
+        data.putArray("user_reports");
+        data.putNull("secure_media");
+        data.putNull("link_flair_text");
+        data.put("id", id);
+        data.put("gilded", index % 50 == 0 ? 1 : 0);
+        data.put("archived", index > 1000);
+        data.put("clicked", false);
+        data.putNull("report_reasons");
+        data.put("author", "author" + index % 1000);
+        data.put("num_comments", index * 7 % 500);
+        data.put("score", index * 13 % 5000);
+        data.putNull("approved_by");
+        data.put("over_18", false);
+        data.put("hidden", false);
+        if (!self) {
+            ObjectNode source = data.putObject("preview").putArray("images").addObject()
+                    .putObject("source");
+            source.put("url", "https://i.redditmedia.com/" + id + ".jpg");
+            source.put("width", 1920);
+            source.put("height", 1080);
+        }
+        data.put("thumbnail", self ? "self" : "https://b.thumbs.redditmedia.com/" + id + ".jpg");
+        data.put("subreddit_id", "t5_" + Integer.toString(index % Fixtures.SUBREDDITS + 1, 36));
+        data.put("edited", false);
+        data.putNull("link_flair_css_class");
+        data.putNull("author_flair_css_class");
+        data.put("downs", 0);
+        data.putArray("mod_reports");
+        data.put("saved", true);
+        data.put("is_self", self);
+        data.put("name", getFullName(index));
+        data.put("permalink", permalink);
+        data.put("stickied", false);
+        data.put("created", (double) created + 28800);
+        data.put("url", self ? "https://www.reddit.com" + permalink
+                : "https://i.redd.it/" + id + ".jpg");
+        data.putNull("author_flair_text");
+        data.put("title", "Saved submission " + index + " in " + subreddit);
+        data.put("created_utc", (double) created);
+        data.putNull("distinguished");
+        data.putNull("media");
+        data.put("upvote_ratio", 0.97);
+        data.putNull("num_reports");
+        data.put("ups", index * 13 % 5000);
+        data.put("locked", false);
+        data.put("visited", false);
+        return data;
+    }
+
+    private static ObjectNode accessToken() {
+        ObjectNode token = JsonNodeFactory.instance.objectNode();
+        token.put("access_token", "local-access-token");
+        token.put("token_type", "bearer");
+        token.put("expires_in", 3600);
+        token.put("scope", "identity history");
+        token.put("refresh_token", "local-refresh-token");
+        return token;
+    }
+
+    private static ObjectNode account() {
+        ObjectNode account = JsonNodeFactory.instance.objectNode();
+        account.put("name", USER_NAME);
+        account.put("id", "1");
+        account.put("created", 1262304000.0);
+        account.put("created_utc", 1262304000.0);
+        account.put("link_karma", 1);
+        account.put("comment_karma", 1);
+        account.put("has_verified_email", true);
+        account.put("over_18", false);
+        account.put("is_gold", false);
+        account.put("is_mod", false);
+        account.put("gold_creddits", 0);
+        account.put("inbox_count", 0);
+        account.put("has_mail", false);
+        account.put("has_mod_mail", false);
+        return account;
+    }
+
+    private static ObjectNode error(int status, String message) {
+        ObjectNode error = JsonNodeFactory.instance.objectNode();
+        error.put("message", message);
+        error.put("error", status);
+        return error;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> args = new HashMap<>();
+        if (query == null) return args;
+        for (String arg : query.split("&")) {
+            int split = arg.indexOf('=');
+            if (split < 0) continue;
+            args.put(URLDecoder.decode(arg.substring(0, split), "UTF-8"),
+                    URLDecoder.decode(arg.substring(split + 1), "UTF-8"));
+        }
+        return args;
+    }
+
+    private static void respond(HttpExchange exchange, int status, ObjectNode body)
+            throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toString().getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.jotran.reader.model;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Sends the requests a {@code RedditClient} makes to reddit's hosts to a local server instead,
+ * over plain HTTP. Requests to any other host are left untouched.
+ */
+public class RedditRedirectInterceptor implements Interceptor {
+    private final String mHost;
+    private final int mPort;
+
+    /**
+     * Constructor for a {@code RedditRedirectInterceptor}.
+     *
+     * @param host the host of the local server
+     * @param port the port of the local server
+     */
+    public RedditRedirectInterceptor(String host, int port) {
+        mHost = host;
+        mPort = port;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        if (!url.host().equals("reddit.com") && !url.host().endsWith(".reddit.com"))
+            return chain.proceed(request);
+        HttpUrl local = url.newBuilder().scheme("http").host(mHost).port(mPort).build();
+        return chain.proceed(request.newBuilder().url(local).build());
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.jotran.reader.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistorySyncTest {
+    private static final int SUBMISSIONS = 600;
+    private static final int PAGE_SIZE = 25;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private LocalRedditServer mServer;
+    private JrawReaderHelper mJrawHelper;
+    private JdbcSubmissionStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mStore = new JdbcSubmissionStore(new File(mFolder.getRoot(), "submissions.db").getPath());
+        mServer = new LocalRedditServer(SUBMISSIONS);
+        mJrawHelper = mServer.createHelper();
+        mServer.authenticate(mJrawHelper);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+        mServer.close();
+    }
+
+    @Test
+    public void storesWholeHistory() {
+        assertEquals(SUBMISSIONS, walk());
+
+        assertEquals(SUBMISSIONS, mStore.getSubmissionCount());
+        assertTrue(mStore.isSyncComplete());
+        assertEquals(LocalRedditServer.getFullName(0),
+                mStore.getSubmissions(null, null, 1).get(0).getFullName());
+    }
+
+    /**
+     * The walk needs more requests than the window leaves to background requests, so it has to
+     * wait for the window to reset instead of running into 429s.
+     */
+    @Test
+    public void staysWithinRateLimit() {
+        mServer.setRateLimit(RequestScheduler.FOREGROUND_RESERVE + 15, 3000);
+
+        walk();
+
+        assertEquals(SUBMISSIONS, mStore.getSubmissionCount());
+        assertEquals(0, mServer.getRateLimitedCount());
+    }
+
+    @Test
+    public void retriesFailedPageFromItsCursor() {
+        mServer.failNext(2, 503);
+
+        assertEquals(SUBMISSIONS, walk());
+        assertEquals(SUBMISSIONS, mStore.getSubmissionCount());
+    }
+
+    private int walk() {
+        return HistorySync.walk(mJrawHelper, mStore, new RetryPolicy(4, 0, 0, 10, 0.1), PAGE_SIZE)
+                .toBlocking().lastOrDefault(0);
+    }
+}
@@ -0,0 +1,345 @@
+package io.github.jotran.reader.model;
+
+import net.dean.jraw.models.Submission;
+import net.dean.jraw.util.JrawUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JdbcSubmissionStoreTest {
+    private static final int PAGE_SIZE = 25;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private String mPath;
+    private JdbcSubmissionStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mPath = new File(mFolder.getRoot(), "submissions.db").getPath();
+        mStore = new JdbcSubmissionStore(mPath);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void pagesInSavedOrder() {
+        List<Submission> submissions = Fixtures.createSubmissions(60);
+        mStore.addSubmissions(submissions.subList(10, 60));
+        mStore.addNewestSubmissions(submissions.subList(0, 10));
+
+        List<SubmissionSummary> first = mStore.getSubmissions(null, null, PAGE_SIZE);
+        List<SubmissionSummary> second = mStore.getSubmissions(null,
+                first.get(PAGE_SIZE - 1).getFullName(), PAGE_SIZE);
+
+        assertEquals(60, mStore.getSubmissionCount());
+        assertEquals(submissions.get(0).getFullName(), first.get(0).getFullName());
+        assertEquals(submissions.get(PAGE_SIZE).getFullName(), second.get(0).getFullName());
+        assertEquals(submissions.get(59).getFullName(), mStore.getPageAfter());
+    }
+
+    @Test
+    public void updatesStoredSubmissionsInPlace() {
+        List<Submission> submissions = Fixtures.createSubmissions(3);
+        mStore.addSubmissions(submissions);
+        mStore.addSubmissions(Collections.singletonList(submissions.get(0)));
+
+        assertEquals(3, mStore.getSubmissionCount());
+        assertEquals(submissions.get(0).getFullName(),
+                mStore.getSubmissions(null, null, 1).get(0).getFullName());
+        assertEquals(submissions.get(0).getTitle(),
+                mStore.getSubmission(submissions.get(0).getFullName()).getTitle());
+        assertTrue(mStore.hasSubmission(submissions.get(2).getFullName()));
+        assertNull(mStore.getSubmission("t3_missing"));
+    }
+
+    @Test
+    public void upsertsByFullName() {
+        mStore.addSubmissions(Fixtures.createSubmissions(3));
+        Submission edited = createSubmission(Fixtures.fullName(1), "edited title", 99, 1400000001L);
+
+        mStore.addSubmissions(Collections.singletonList(edited));
+        mStore.addNewestSubmissions(Collections.singletonList(edited));
+
+        List<SubmissionSummary> stored = mStore.getSubmissions(null, null, PAGE_SIZE);
+        assertEquals(3, mStore.getSubmissionCount());
+        assertEquals(Arrays.asList(Fixtures.fullName(0), Fixtures.fullName(1),
+                Fixtures.fullName(2)), fullNames(stored));
+        assertEquals("edited title", stored.get(1).getTitle());
+        assertEquals(99, stored.get(1).getScore());
+        assertEquals("edited title", mStore.getSubmission(Fixtures.fullName(1)).getTitle());
+        assertEquals(Collections.singletonList(Fixtures.fullName(1)), search(null, "edited"));
+    }
+
+    @Test
+    public void storesScoreAndCreationTimeAsIntegers() throws SQLException {
+        mStore.addSubmissions(Fixtures.createSubmissions(10));
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + mPath);
+             Statement statement = connection.createStatement()) {
+            ResultSet rows = statement.executeQuery("SELECT typeof(" +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_SCORE + "), typeof(" +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + "), " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_CREATED_UTC + " FROM " +
+                    SubmissionsContract.SubmissionEntry.TABLE_NAME + " ORDER BY " +
+                    SubmissionsContract.SubmissionEntry.COLUMN_NAME_POSITION);
+            for (int i = 0; i < 10; i++) {
+                assertTrue(rows.next());
+                assertEquals("integer", rows.getString(1));
+                assertEquals("integer", rows.getString(2));
+                assertEquals(1400000000L + i, rows.getLong(3));
+            }
+            assertFalse(rows.next());
+        }
+    }
+
+    @Test
+    public void sortsByTypedColumns() {
+        mStore.addSubmissions(Arrays.asList(
+                createSubmission("t3_a", "a", 5, 300),
+                createSubmission("t3_b", "b", 20, 100),
+                createSubmission("t3_c", "c", 10, 200),
+                createSubmission("t3_d", "d", 1, 400)));
+
+        assertEquals(Arrays.asList("t3_b", "t3_c", "t3_a", "t3_d"), fullNames(
+                mStore.getSortedSubmissions(SubmissionSort.TOP, 0, Long.MAX_VALUE, 10)));
+        assertEquals(Arrays.asList("t3_a", "t3_c", "t3_b"), fullNames(
+                mStore.getSortedSubmissions(SubmissionSort.NEWEST, 100, 300, 10)));
+        assertEquals(Arrays.asList("t3_c", "t3_a"), fullNames(
+                mStore.getSortedSubmissions(SubmissionSort.OLDEST, 101, 400, 2)));
+    }
+
+    @Test
+    public void filtersAndCountsBySubreddit() {
+        mStore.addSubmissions(Fixtures.createSubmissions(10 * Fixtures.SUBREDDITS));
+
+        List<SubmissionSummary> page = mStore.getSubmissions(Fixtures.subreddit(7), null, 100);
+        Map<String, Integer> counts = mStore.getSubredditCounts();
+
+        assertEquals(10, page.size());
+        for (SubmissionSummary summary : page)
+            assertEquals(Fixtures.subreddit(7), summary.getSubreddit());
+        assertEquals(Fixtures.SUBREDDITS, counts.size());
+        assertEquals(Integer.valueOf(10), counts.get(Fixtures.subreddit(7)));
+        assertEquals(Fixtures.SUBREDDITS, mStore.getSubreddits().size());
+    }
+
+    @Test
+    public void searchesTitles() {
+        mStore.addSubmissions(Fixtures.createSubmissions(100));
+
+        List<SubmissionSummary> results = mStore.searchSubmissions(null, "title 42", 10);
+
+        assertEquals("title 42", results.get(0).getTitle());
+    }
+
+    @Test
+    public void searchMatchesWordPrefixesIgnoringCase() {
+        addSearchFixtures();
+
+        assertEquals(Arrays.asList("t3_1", "t3_3"), search(null, "OWNER"));
+        assertEquals(Arrays.asList("t3_1", "t3_3"), search(null, "owner"));
+        assertEquals(Collections.singletonList("t3_1"), search(null, "rust own"));
+        assertEquals(Collections.singletonList("t3_2"), search(null, "bread"));
+        assertTrue(search(null, "wnership").isEmpty());
+    }
+
+    @Test
+    public void searchFiltersBySubreddit() {
+        addSearchFixtures();
+
+        assertEquals(Collections.singletonList("t3_3"), search("smallbusiness", "sourdough"));
+        assertTrue(search("programming", "sourdough").isEmpty());
+    }
+
+    @Test
+    public void searchIgnoresMatchSyntax() {
+        addSearchFixtures();
+
+        assertEquals(Collections.singletonList("t3_1"), search(null, "\"rust\" (own*"));
+        assertEquals(Collections.singletonList("t3_1"), search(null, "-rust ^own"));
+        assertTrue(search(null, "\"*").isEmpty());
+        assertTrue(search(null, "title:").isEmpty());
+    }
+
+    @Test
+    public void searchSplitsWordsLikeTheTokenizer() {
+        mStore.addSubmissions(Arrays.asList(
+                Fixtures.createSubmission("t3_1", "Renaming snake_case fields", "java"),
+                Fixtures.createSubmission("t3_2", "Snakes of the world", "pics")));
+
+        assertEquals(Collections.singletonList("t3_1"), search(null, "snake_case"));
+        assertEquals(Collections.singletonList("t3_1"), search(null, "case"));
+        assertEquals(Collections.singletonList("t3_1"), search(null, "snake_c"));
+    }
+
+    @Test
+    public void storesListingCursors() {
+        List<Submission> submissions = Fixtures.createSubmissions(PAGE_SIZE);
+        mStore.addSyncedSubmissions(submissions, "t3_after", PAGE_SIZE);
+        mStore.addPagedSubmissions(new ArrayList<>(), null, PAGE_SIZE);
+
+        assertEquals("t3_after", mStore.getSyncAfter());
+        assertFalse(mStore.isSyncComplete());
+        assertTrue(mStore.isPagingComplete());
+        assertEquals(PAGE_SIZE, mStore.getPageLimit());
+        mStore.setLastRevalidated(1000);
+        assertEquals(1000, mStore.getLastRevalidated());
+
+        mStore.reset();
+
+        assertEquals(0, mStore.getSubmissionCount());
+        assertNull(mStore.getSyncAfter());
+        assertEquals(0, mStore.getLastRevalidated());
+        assertTrue(mStore.getSubredditCounts().isEmpty());
+    }
+
+    @Test
+    public void pagesOnDemandAfterWalkedHistory() {
+        int pages = 4;
+        List<Submission> submissions = Fixtures.createSubmissions(pages * PAGE_SIZE);
+        mStore.addPagedSubmissions(submissions.subList(0, PAGE_SIZE),
+                submissions.get(PAGE_SIZE - 1).getFullName(), PAGE_SIZE);
+        for (int i = 0; i < pages; i++) {
+            String last = submissions.get((i + 1) * PAGE_SIZE - 1).getFullName();
+            mStore.addSyncedSubmissions(submissions.subList(i * PAGE_SIZE, (i + 1) * PAGE_SIZE),
+                    i < pages - 1 ? last : null, PAGE_SIZE);
+            assertEquals(last, mStore.getPageAfter());
+        }
+
+        String after = submissions.get(PAGE_SIZE - 1).getFullName();
+        int read = 0;
+        for (List<SubmissionSummary> page = mStore.getSubmissions(null, after, PAGE_SIZE);
+             !page.isEmpty(); page = mStore.getSubmissions(null, after, PAGE_SIZE)) {
+            assertEquals(submissions.get(PAGE_SIZE + read).getFullName(),
+                    page.get(0).getFullName());
+            read += page.size();
+            after = page.get(page.size() - 1).getFullName();
+        }
+
+        assertEquals(pages * PAGE_SIZE, mStore.getSubmissionCount());
+        assertEquals((pages - 1) * PAGE_SIZE, read);
+        assertEquals(after, mStore.getPageAfter());
+        assertTrue(mStore.isSyncComplete());
+        assertFalse(mStore.isPagingComplete());
+    }
+
+    @Test
+    public void watchesSubredditCounts() {
+        List<Map<String, Integer>> emitted = new ArrayList<>();
+        mStore.watchSubredditCounts().subscribe(emitted::add);
+
+        mStore.addSubmissions(Fixtures.createSubmissions(2));
+        mStore.reset();
+
+        assertEquals(3, emitted.size());
+        assertTrue(emitted.get(0).isEmpty());
+        assertEquals(Integer.valueOf(1), emitted.get(1).get(Fixtures.subreddit(1)));
+        assertEquals(Integer.valueOf(0), emitted.get(2).get(Fixtures.subreddit(1)));
+    }
+
+    private void addSearchFixtures() {
+        mStore.addSubmissions(Arrays.asList(
+                Fixtures.createSubmission("t3_1", "Rust ownership explained", "programming"),
+                Fixtures.createSubmission("t3_2", "Sourdough starter guide", "Breadit"),
+                Fixtures.createSubmission("t3_3", "Ownership of a sourdough bakery",
+                        "smallbusiness")));
+    }
+
+    private List<String> search(String subreddit, String query) {
+        return fullNames(mStore.searchSubmissions(subreddit, query, 10));
+    }
+
+    private static List<String> fullNames(List<SubmissionSummary> summaries) {
+        List<String> fullNames = new ArrayList<>();
+        for (SubmissionSummary summary : summaries) fullNames.add(summary.getFullName());
+        return fullNames;
+    }
+
+    private static Submission createSubmission(String fullName, String title, int score,
+                                               long createdUtc) {
+        return new Submission(JrawUtils.fromString(Fixtures.createJson(fullName, title, "author",
+                "subreddit", score, createdUtc)));
+    }
+
+    /**
+     * Mirrors the instrumented {@code SubmissionDbHelperConcurrencyTest}, with readers running
+     * while pages are written.
+     */
+    @Test
+    public void readsWhileWriting() throws InterruptedException {
+        int pages = 40;
+        int readers = 4;
+        List<Submission> submissions = Fixtures.createSubmissions(pages * PAGE_SIZE);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(readers + 1);
+
+        new Thread(() -> {
+            try {
+                for (int i = 0; i < pages; i++) {
+                    mStore.addSubmissions(submissions.subList(i * PAGE_SIZE, (i + 1) * PAGE_SIZE));
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            } finally {
+                writing.set(false);
+                done.countDown();
+            }
+        }).start();
+
+        for (int i = 0; i < readers; i++) {
+            new Thread(() -> {
+                try {
+                    long lastCount = 0;
+                    while (writing.get()) {
+                        long count = mStore.getSubmissionCount();
+                        assertTrue("count went back from " + lastCount + " to " + count,
+                                count >= lastCount);
+                        assertEquals(0, count % PAGE_SIZE);
+                        lastCount = count;
+                        mStore.getSubmissions(null, null, PAGE_SIZE);
+                        mStore.getSubmissions(Fixtures.subreddit(1), null, PAGE_SIZE);
+                        mStore.getSubreddits();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(pages * PAGE_SIZE, mStore.getSubmissionCount());
+    }
+}
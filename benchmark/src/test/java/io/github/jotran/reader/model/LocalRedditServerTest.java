@@ -0,0 +1,100 @@
+package io.github.jotran.reader.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalRedditServerTest {
+    private LocalRedditServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new LocalRedditServer(250);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void pagesSavedListing() throws IOException {
+        JsonNode first = get("/user/reader/saved?limit=100").get("data");
+        JsonNode last = get("/user/reader/saved?limit=100&after=" +
+                LocalRedditServer.getFullName(199)).get("data");
+
+        assertEquals(100, first.get("children").size());
+        assertEquals(LocalRedditServer.getFullName(0),
+                first.get("children").get(0).get("data").get("name").asText());
+        assertEquals(LocalRedditServer.getFullName(99), first.get("after").asText());
+        assertEquals(50, last.get("children").size());
+        assertEquals(LocalRedditServer.getFullName(200),
+                last.get("children").get(0).get("data").get("name").asText());
+        assertTrue(last.get("after").isNull());
+    }
+
+    @Test
+    public void clampsPageSize() throws IOException {
+        mServer.setMaxPageSize(25);
+
+        assertEquals(25, get("/user/reader/saved?limit=100").get("data").get("children").size());
+    }
+
+    @Test
+    public void rateLimitsRequests() throws IOException {
+        mServer.setRateLimit(2, 60000);
+
+        HttpURLConnection allowed = open("/api/v1/me");
+        assertEquals(200, allowed.getResponseCode());
+        assertEquals("1.0", allowed.getHeaderField("X-Ratelimit-Remaining"));
+        assertEquals(200, open("/api/v1/me").getResponseCode());
+        HttpURLConnection limited = open("/api/v1/me");
+        assertEquals(429, limited.getResponseCode());
+        assertEquals("0.0", limited.getHeaderField("X-Ratelimit-Remaining"));
+        assertTrue(Integer.parseInt(limited.getHeaderField("X-Ratelimit-Reset")) <= 60);
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void injectsFailures() throws IOException {
+        mServer.failNext(2, 503);
+
+        assertEquals(503, open("/api/v1/me").getResponseCode());
+        assertEquals(503, open("/api/v1/me").getResponseCode());
+        assertEquals(LocalRedditServer.USER_NAME, get("/api/v1/me").get("name").asText());
+    }
+
+    @Test
+    public void generatesStorableSubmissions() {
+        JsonNode data = LocalRedditServer.createSubmission(4);
+        JsonNode decoded = SubmissionCodec.decodeData(SubmissionCodec.encode(data));
+
+        assertEquals(data.get("title"), decoded.get("title"));
+        assertEquals(data.get("created_utc"), decoded.get("created_utc"));
+        assertTrue(SubmissionCodec.encode(data).length < data.toString().length());
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http", mServer.getHost(), mServer.getPort(), path)
+                .openConnection();
+    }
+
+    private JsonNode get(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return new ObjectMapper().readTree(in);
+        }
+    }
+}